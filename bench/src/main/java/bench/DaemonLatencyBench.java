@@ -0,0 +1,76 @@
+package bench;
+
+import interpreter.DaemonClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * End-to-end latency of one script run as the shell sees it: a cold
+ * `java Main file.pas` process against `java interpreter.DaemonClient file.pas`
+ * talking to a daemon (java Main --serve) started once per trial. Both spawn a
+ * JVM per op; the client's does nothing but connect and copy bytes, with C1
+ * only since it never runs long enough for C2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaemonLatencyBench {
+
+    @Param({"100", "2000"})
+    public int size;
+
+    private final String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    private final String classpath = System.getProperty("java.class.path");
+    private Path dir, script, socket;
+    private Process daemon;
+
+    @Setup
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("daemon-bench");
+        script = dir.resolve("calls.pas");
+        Files.writeString(script, Programs.calls(size));
+        socket = dir.resolve("d.sock");
+        daemon = new ProcessBuilder(java, "-cp", classpath, "Main", "--serve=" + socket)
+                .redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        while (!Files.exists(socket)) Thread.sleep(10);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        daemon.destroy();
+        daemon.waitFor();
+        Files.deleteIfExists(socket);
+        Files.deleteIfExists(script);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public int coldProcess() throws Exception {
+        return run(List.of(java, "-cp", classpath, "Main", script.toString()));
+    }
+
+    @Benchmark
+    public int daemonClient() throws Exception {
+        return run(List.of(java, "-XX:TieredStopAtLevel=1", "-cp", classpath,
+                DaemonClient.class.getName(), "--socket=" + socket, script.toString()));
+    }
+
+    private static int run(List<String> command) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder(command)
+                .redirectInput(ProcessBuilder.Redirect.from(Path.of("/dev/null").toFile()))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        int code = p.waitFor();
+        if (code != 0) throw new IllegalStateException(command + " exited with " + code);
+        return code;
+    }
+}
@@ -0,0 +1,44 @@
+package bench;
+
+import interpreter.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Single operations through the Engine API, without a surrounding program:
+ * executeConstructor and an instance call through a warmed CallSite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBench {
+
+    private Engine engine;
+    private ClassDef point;
+    private ObjectInstance obj;
+    private CallSite move;
+    private final Value[] ctorArgs = {Value.ofInt(1), Value.ofInt(2)};
+    private final Value[] moveArgs = {Value.ofInt(1)};
+
+    @Setup
+    public void setup() {
+        engine = new Engine(DelphiInterpreter.loadSource(Programs.withMain(1, "p.Move(1);")));
+        point = engine.program.classes.get("TPoint");
+        obj = engine.executeConstructor(point, point.constructor, ctorArgs).objVal;
+        move = engine.program.callSites.get(0);
+    }
+
+    @Benchmark
+    public Value executeConstructor() {
+        return engine.executeConstructor(point, point.constructor, ctorArgs);
+    }
+
+    @Benchmark
+    public Value instanceCall() {
+        return engine.callMethod(move, obj, moveArgs);
+    }
+}
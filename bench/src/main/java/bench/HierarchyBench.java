@@ -0,0 +1,61 @@
+package bench;
+
+import interpreter.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Dispatch on class hierarchies: 100000 calls or field reads per op through
+ * one site in a method, on objects from the bottom of an inheritance chain
+ * `levels` deep. With one kind of receiver the sites stay monomorphic; with
+ * more than CallSite.MAX_POLY they are megamorphic and every call goes through
+ * the vtable (class-typed receiver) or itable (interface-typed receiver). The
+ * field read is of a field declared by the root class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchyBench {
+
+    @Param({"1", "8"})
+    public int levels;
+
+    @Param({"1", "4", "8"})
+    public int kinds;
+
+    private static final int ITERATIONS = 100_000;
+
+    private Engine virtualCall, interfaceCall, inheritedField;
+
+    @Setup
+    public void setup() {
+        virtualCall = load(Programs.hierarchy(levels, kinds, ITERATIONS, "o.Step(i)"));
+        interfaceCall = load(Programs.hierarchy(levels, kinds, ITERATIONS, "s.Step(i)"));
+        inheritedField = load(Programs.hierarchy(levels, kinds, ITERATIONS, "o.x"));
+    }
+
+    private static Engine load(String source) {
+        Engine e = new Engine(DelphiInterpreter.loadSource(source));
+        e.setIO(Executions.discardingIO());
+        return e;
+    }
+
+    @Benchmark
+    public void virtualCall() {
+        virtualCall.run();
+    }
+
+    @Benchmark
+    public void interfaceCall() {
+        interfaceCall.run();
+    }
+
+    @Benchmark
+    public void inheritedField() {
+        inheritedField.run();
+    }
+}
@@ -0,0 +1,49 @@
+package bench;
+
+import interpreter.DelphiInterpreter;
+import interpreter.delphiLexer;
+import interpreter.delphiParser;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Startup cost by program size: lexing + parsing alone, and the full load
+ * (parse, class registration, method attachment, lowering, verification).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBench {
+
+    @Param({"1000", "10000", "100000"})
+    public int lines;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        source = Programs.classes(lines);
+    }
+
+    @Benchmark
+    public delphiParser.ProgramContext parse() {
+        delphiParser parser = new delphiParser(new CommonTokenStream(new delphiLexer(CharStreams.fromString(source))));
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        return parser.program();
+    }
+
+    @Benchmark
+    public Object load() {
+        return DelphiInterpreter.loadSource(source);
+    }
+}
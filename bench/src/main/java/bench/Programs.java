@@ -0,0 +1,164 @@
+package bench;
+
+/*
+ * Synthetic benchmark programs. Each generator takes a size (statements in the
+ * main block, or approximate source lines for classes()) so scaling can be
+ * measured with one JMH @Param.
+ */
+final class Programs {
+    private Programs() {}
+
+    // ~29 lines per class: fields, a constructor, a procedure and a function
+    static String classes(int lines) {
+        int n = Math.max(1, lines / 29);
+        StringBuilder sb = new StringBuilder("program Classes;\n\ntype\n");
+        for (int i = 0; i < n; i++) {
+            sb.append("  T").append(i).append(" = class\n")
+              .append("  private:\n    a, b: integer;\n")
+              .append("  public:\n")
+              .append("    constructor Create(x: integer);\n")
+              .append("    procedure Step(d: integer);\n")
+              .append("    function Calc(p: integer; q: integer): integer;\n")
+              .append("  end;\n");
+        }
+        for (int i = 0; i < n; i++) {
+            sb.append("\nconstructor T").append(i).append(".Create(x: integer);\nbegin\n  a := x;\n  b := x * 2 + 1;\nend;\n")
+              .append("\nprocedure T").append(i).append(".Step(d: integer);\nbegin\n  a := a + d * (b - 1) / 2;\n  b := (b + a) - (d * 3) + 7;\nend;\n")
+              .append("\nfunction T").append(i).append(".Calc(p: integer; q: integer): integer;\nbegin\n")
+              .append("  Calc := ((a + p) * (b - q) + (p * q)) / (q + 1) - a * 2 + b;\nend;\n");
+        }
+        sb.append("\nvar\n  r: integer;\n");
+        for (int i = 0; i < n; i++) sb.append("  o").append(i).append(": T").append(i).append(";\n");
+        sb.append("\nbegin\n  r := 0;\n");
+        for (int i = 0; i < n; i++) {
+            sb.append("  o").append(i).append(" := T").append(i).append(".Create(").append(i).append(");\n")
+              .append("  o").append(i).append(".Step(3);\n")
+              .append("  r := r + o").append(i).append(".Calc(r, 2);\n");
+        }
+        return sb.append("end.\n").toString();
+    }
+
+    private static final String POINT = """
+            program Bench;
+
+            type
+              TPoint = class
+              public:
+                x, y: integer;
+                constructor Create(ax: integer; ay: integer);
+                procedure Move(d: integer);
+                function Sum(): integer;
+              end;
+
+            constructor TPoint.Create(ax: integer; ay: integer);
+            begin
+              x := ax;
+              y := ay;
+            end;
+
+            procedure TPoint.Move(d: integer);
+            begin
+              x := x + d;
+              y := y - d;
+            end;
+
+            function TPoint.Sum(): integer;
+            begin
+              Sum := x + y;
+            end;
+
+            var
+              p: TPoint;
+              a, b: integer;
+
+            begin
+              p := TPoint.Create(1, 2);
+              a := 3;
+              b := 4;
+            """;
+
+    static String withMain(int statements, String... body) {
+        StringBuilder sb = new StringBuilder(POINT);
+        for (int i = 0; i < statements; i++) sb.append("  ").append(body[i % body.length]).append('\n');
+        return sb.append("end.\n").toString();
+    }
+
+    static String construction(int n) {
+        return withMain(n, "p := TPoint.Create(a, b);");
+    }
+
+    static String calls(int n) {
+        return withMain(n, "p.Move(1);", "a := p.Sum();");
+    }
+
+    static String fields(int n) {
+        return withMain(n, "p.x := p.y + 1;", "p.y := p.x - 1;");
+    }
+
+    static String arithmetic(int n) {
+        return withMain(n, "a := (a * 3 + b) / 2 - (b - 7) * 5;", "b := a + b * 2 - (a / 3);");
+    }
+
+    static String output(int n) {
+        return withMain(n, "writeln(a);", "writeln(a, b);");
+    }
+
+    // A chain T0 <- T1 <- ... <- T<levels-1>, each overriding Step, with T0 implementing IStep and declaring
+    // the field x. TDriver has one call site per kind of dispatch, driven with `kinds` objects of the deepest
+    // classes in turn: one kind keeps the sites monomorphic, more than CallSite.MAX_POLY makes them megamorphic.
+    // `call` is "o.Step(i)" (class-typed receiver), "s.Step(i)" (interface-typed) or "o.x" (inherited field)
+    static String hierarchy(int levels, int kinds, int iterations, String call) {
+        StringBuilder sb = new StringBuilder("program Hierarchy;\n\ntype\n");
+        sb.append("  IStep = interface\n    function Step(v: integer): integer;\n  end;\n\n");
+        for (int i = 0; i < levels; i++) {
+            sb.append("  T").append(i).append(i == 0 ? " = class implements IStep\n" : " = class(T" + (i - 1) + ")\n")
+              .append("  public:\n");
+            if (i == 0) sb.append("    x: integer;\n    constructor Create(ax: integer);\n");
+            sb.append("    function Step(v: integer): integer;\n  end;\n\n");
+        }
+        sb.append("""
+                  TDriver = class
+                  public:
+                    constructor Create();
+                    function Run(o: T0; s: IStep; n: integer; i: integer; r: integer): integer;
+                  end;
+
+                constructor T0.Create(ax: integer);
+                begin
+                  x := ax;
+                end;
+                """);
+        for (int i = 0; i < levels; i++) {
+            sb.append("\nfunction T").append(i).append(".Step(v: integer): integer;\nbegin\n  Step := v + ")
+              .append(i).append(";\nend;\n");
+        }
+        sb.append("""
+
+                constructor TDriver.Create();
+                begin
+                end;
+
+                function TDriver.Run(o: T0; s: IStep; n: integer; i: integer; r: integer): integer;
+                begin
+                  r := 0;
+                  for i := 1 to n do r := r + %s;
+                  Run := r;
+                end;
+
+                var
+                  d: TDriver;
+                  total: integer;
+                """.formatted(call));
+        for (int k = 0; k < kinds; k++) sb.append("  o").append(k).append(": T0;\n");
+        sb.append("\nbegin\n  d := TDriver.Create();\n  total := 0;\n");
+        for (int k = 0; k < kinds; k++) {
+            sb.append("  o").append(k).append(" := T").append(Math.max(0, levels - 1 - k)).append(".Create(").append(k).append(");\n");
+        }
+        int rounds = Math.max(1, iterations / 100 / kinds);
+        sb.append("  for total := 1 to ").append(rounds).append(" do\n  begin\n");
+        for (int k = 0; k < kinds; k++) {
+            sb.append("    d.Run(o").append(k).append(", o").append(k).append(", 100, 0, 0);\n");
+        }
+        return sb.append("  end;\nend.\n").toString();
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import interpreter.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Execution of pre-loaded programs whose main block repeats one kind of
+ * statement `size` times, so time per op divided by size is the cost of one
+ * statement. Output goes to a discarding stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RunBench {
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private Engine construction, calls, fields, arithmetic, output;
+
+    @Setup
+    public void setup() {
+        construction = load(Programs.construction(size));
+        calls = load(Programs.calls(size));
+        fields = load(Programs.fields(size));
+        arithmetic = load(Programs.arithmetic(size));
+        output = load(Programs.output(size));
+    }
+
+    private static Engine load(String source) {
+        Engine e = new Engine(DelphiInterpreter.loadSource(source));
+        e.setIO(Executions.discardingIO());
+        return e;
+    }
+
+    @Benchmark
+    public void construction() {
+        construction.run();
+    }
+
+    @Benchmark
+    public void instanceCalls() {
+        calls.run();
+    }
+
+    @Benchmark
+    public void fieldAccess() {
+        fields.run();
+    }
+
+    @Benchmark
+    public void arithmetic() {
+        arithmetic.run();
+    }
+
+    @Benchmark
+    public void writeln() {
+        output.run();
+    }
+}
@@ -0,0 +1,47 @@
+package bench;
+
+import interpreter.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Concurrent executions of one shared Program: each op runs `runs` fresh
+ * Engines on Executions.newExecutor() (virtual threads on Java 21+). Scaling
+ * with core count is measured by restricting the JVM, e.g.
+ *   java -jar benchmarks.jar ThroughputBench -jvmArgsAppend -XX:ActiveProcessorCount=4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThroughputBench {
+
+    @Param({"1000"})
+    public int runs;
+
+    @Param({"100"})
+    public int size;
+
+    private Program program;
+    private ExecutorService pool;
+
+    @Setup
+    public void setup() {
+        program = DelphiInterpreter.loadSource(Programs.calls(size));
+        pool = Executions.newExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public void concurrentRuns() throws InterruptedException {
+        Executions.runAll(pool, program, runs, Executions::discardingIO);
+    }
+}
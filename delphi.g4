@@ -121,6 +121,12 @@ formalParam
 typeName
   : INTEGER
   | ID
+  | ARRAY LBRACK bound DOTDOT bound RBRACK OF INTEGER   // static: bounds fixed, storage allocated with the variable
+  | ARRAY OF INTEGER                                   // dynamic: sized by SetLength
+  ;
+
+bound
+  : MINUS? INT
   ;
 
 /* ================= STATEMENTS ================= */
@@ -138,9 +144,19 @@ statement
   : assignment
   | callStmt
   | compoundStmt
+  | forStmt
+  | whileStmt
   | emptyStmt
   ;
 
+forStmt
+  : FOR ID ASSIGN expr (TO | DOWNTO) expr DO statement
+  ;
+
+whileStmt
+  : WHILE expr DO statement
+  ;
+
 compoundStmt
   : BEGIN stmtList END
   ;
@@ -154,7 +170,7 @@ assignment
   ;
 
 lvalue
-  : ID (DOT ID)?
+  : ID (DOT ID)? (LBRACK expr RBRACK)?
   ;
 
 callStmt
@@ -173,8 +189,12 @@ actualParams
 /* ================= EXPRESSIONS ================= */
 
 expr
-  : expr op=('*'|'/') expr           # mulDiv
+  : NOT expr                         # notExpr
+  | expr op=('*'|'/') expr           # mulDiv
   | expr op=('+'|'-') expr           # addSub
+  | expr op=('='|'<>'|'<'|'<='|'>'|'>=') expr   # compare
+  | expr AND expr                    # andExpr
+  | expr OR expr                     # orExpr
   | INT                              # intLit
   | lvalue                           # lvalExpr
   | callExpr                         # callExprAlt
@@ -199,15 +219,29 @@ END         : 'end';
 INTEGER     : 'integer';
 INTERFACE   : 'interface';
 IMPLEMENTS  : 'implements';
+FOR         : 'for';
+TO          : 'to';
+DOWNTO      : 'downto';
+DO          : 'do';
+WHILE       : 'while';
+AND         : 'and';
+OR          : 'or';
+NOT         : 'not';
+ARRAY       : 'array';
+OF          : 'of';
 
 ASSIGN      : ':=';
 EQ          : '=';
 COLON       : ':';
 SEMI        : ';';
 COMMA       : ',';
+DOTDOT      : '..';
 DOT         : '.';
 LPAREN      : '(';
 RPAREN      : ')';
+LBRACK      : '[';
+RBRACK      : ']';
+MINUS       : '-';
 
 ID          : [a-zA-Z_][a-zA-Z0-9_]*;
 INT         : [0-9]+;
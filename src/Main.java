@@ -1,27 +1,177 @@
-import org.antlr.v4.runtime.*;
-import org.antlr.v4.runtime.tree.*;
-import interpreter.DelphiInterpreter;
+import interpreter.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
+// No ANTLR types appear here: running a program image never loads the parser.
 public class Main {
     public static void main(String[] args) throws Exception {
-        if (args.length != 1) {
-            System.err.println("Usage: java Main <file.pas>");
-            System.exit(1);
+        if (args.length > 0 && (args[0].equals("--serve") || args[0].startsWith("--serve="))) {
+            Path socket = args[0].equals("--serve") ? DaemonProtocol.defaultSocket() : Path.of(args[0].substring("--serve=".length()));
+            Daemon.serve(socket, Main::run, System.err);
+            return;
+        }
+        int code = run(args, Path.of(""), System.in, new FileOutputStream(FileDescriptor.out), System.err, null);
+        if (code != 0) System.exit(code);
+    }
+
+    // One run of the CLI; relative paths resolve against cwd. With warm (inside the daemon), loaded programs and the Jit are reused.
+    public static int run(String[] args, Path cwd, InputStream stdin, OutputStream stdout, PrintStream stderr, Daemon.Warm warm) throws Exception {
+        String file = null;
+        int jitThreshold = 0;
+        boolean icStats = false;
+        boolean timings = false;
+        int ioBuffer = ConsoleIO.DEFAULT_BUFFER;
+        long flushMillis = 0;
+        Path compileTo = null;
+        ImageCache cache = null;
+        boolean profile = false;
+        Path profileOut = null;
+        int profileTop = 20, profileSample = 0;
+        int poolMax = 0;
+        boolean poolDebug = false, poolStats = false;
+        boolean optimize = true, dumpIr = false;
+        Path batch = null;
+        int threads = 0;
+        boolean meterReport = false;
+        Meter.Limits limits = Meter.Limits.NONE;
+        boolean telemetry = false;
+
+        for (String a : args) {
+            if (a.equals("--ic-stats")) icStats = true;
+            else if (a.equals("--timings")) timings = true;
+            else if (a.startsWith("--io-buffer=")) ioBuffer = Integer.parseInt(a.substring("--io-buffer=".length()));
+            else if (a.startsWith("--io-flush-ms=")) flushMillis = Long.parseLong(a.substring("--io-flush-ms=".length()));
+            else if (a.equals("--jit")) jitThreshold = Jit.DEFAULT_THRESHOLD;
+            else if (a.startsWith("--jit=")) jitThreshold = Math.max(1, Integer.parseInt(a.substring("--jit=".length())));
+            else if (a.startsWith("--compile=")) compileTo = cwd.resolve(a.substring("--compile=".length()));
+            else if (a.equals("--cache")) cache = new ImageCache(ImageCache.defaultDir());
+            else if (a.startsWith("--cache=")) cache = new ImageCache(cwd.resolve(a.substring("--cache=".length())));
+            else if (a.equals("--profile")) profile = true;
+            else if (a.startsWith("--profile=")) {
+                profile = true;
+                profileOut = cwd.resolve(a.substring("--profile=".length()));
+            }
+            else if (a.startsWith("--profile-top=")) profileTop = Integer.parseInt(a.substring("--profile-top=".length()));
+            else if (a.startsWith("--profile-sample=")) profileSample = Integer.parseInt(a.substring("--profile-sample=".length()));
+            else if (a.equals("--pool")) poolMax = ObjectPool.DEFAULT_MAX_PER_CLASS;
+            else if (a.startsWith("--pool=")) poolMax = Integer.parseInt(a.substring("--pool=".length()));
+            else if (a.equals("--pool-debug")) poolDebug = true;
+            else if (a.equals("--pool-stats")) poolStats = true;
+            else if (a.equals("--no-opt")) optimize = false;
+            else if (a.equals("--dump-ir")) dumpIr = true;
+            else if (a.startsWith("--batch=")) batch = cwd.resolve(a.substring("--batch=".length()));
+            else if (a.startsWith("--threads=")) threads = Integer.parseInt(a.substring("--threads=".length()));
+            else if (a.equals("--meter")) meterReport = true;
+            else if (a.equals("--telemetry")) telemetry = true;
+            else if (a.startsWith("--max-statements=")) limits = limits.withStatements(Long.parseLong(a.substring("--max-statements=".length())));
+            else if (a.startsWith("--max-calls=")) limits = limits.withCalls(Long.parseLong(a.substring("--max-calls=".length())));
+            else if (a.startsWith("--max-depth=")) limits = limits.withDepth(Long.parseLong(a.substring("--max-depth=".length())));
+            else if (a.startsWith("--max-objects=")) limits = limits.withObjects(Long.parseLong(a.substring("--max-objects=".length())));
+            else if (a.startsWith("--max-cells=")) limits = limits.withCells(Long.parseLong(a.substring("--max-cells=".length())));
+            else if (file == null && !a.startsWith("--")) file = a;
+            else return usage(stderr);
+        }
+        if (jitThreshold > 0) Jit.reportUnavailable(stderr);
+        if (batch != null) {
+            if (file != null) return usage(stderr);
+            List<Batch.Case> cases = Batch.cases(batch);
+            long t = System.nanoTime();
+            List<Batch.Result> results = Batch.run(cases, threads, optimize, jitThreshold, limits);
+            PrintStream out = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+            return Batch.report(results, System.nanoTime() - t, out) ? 0 : 1;
+        }
+        if (file == null) return usage(stderr);
+
+        PhaseTimes times = new PhaseTimes();
+        Path path = cwd.resolve(file);
+        ImageCache images = cache;
+        boolean opt = optimize;
+        Program program = warm != null
+                ? warm.program(path, optimize, () -> load(path, images, opt, times))
+                : load(path, cache, optimize, times);
+        if (dumpIr) IrPrinter.print(program, stderr);
+
+        if (compileTo != null) {
+            try (OutputStream out = Files.newOutputStream(compileTo)) {
+                ProgramImage.write(program, out);
+            }
+            return 0;
         }
 
-        String code = Files.readString(Path.of(args[0]));
-        CharStream input = CharStreams.fromString(code);
+        Engine engine = new Engine(program);
+        if (jitThreshold > 0) engine.enableJit(warm != null ? warm.jit(program, jitThreshold) : new Jit(jitThreshold));
+        Profiler profiler = profile ? new Profiler(profileSample) : null;
+        if (profiler != null) engine.enableProfiler(profiler);
+        ObjectPool pool = poolMax > 0 || poolDebug ? new ObjectPool(poolMax, poolDebug) : null;
+        if (pool != null) engine.enablePool(pool);
+        Meter meter = meterReport || !limits.equals(Meter.Limits.NONE) ? new Meter(limits) : null;
+        if (meter != null) engine.enableMeter(meter);
+        Telemetry tel = telemetry ? new Telemetry() : null;
+        if (tel != null) engine.enableTelemetry(tel);
+        engine.setIO(new ConsoleIO(stdin, stdout, ioBuffer, flushMillis));
+        long t = System.nanoTime();
+        try {
+            engine.run();
+        } finally {
+            times.mark("run", t);
+            if (icStats) program.callSites.forEach(stderr::println);
+            if (timings) times.report(stderr);
+            if (profiler != null) writeProfile(profiler, profileOut, profileTop, stderr);
+            if (pool != null && poolStats) pool.stats().forEach(stderr::println);
+            if (meter != null && meterReport) meter.report(stderr);
+            if (tel != null && !tel.leftovers().isEmpty()) stderr.println("telemetry: objects left undestroyed " + tel.leftovers());
+        }
+        return 0;
+    }
+
+    // Summary to stderr; collapsed stacks to `out` and statement samples to `out`.samples
+    private static void writeProfile(Profiler profiler, Path out, int top, PrintStream stderr) throws IOException {
+        profiler.printSummary(stderr, top);
+        if (out == null) return;
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(out))) {
+            profiler.writeCollapsed(w);
+        }
+        if (profiler.hasSamples()) {
+            try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(Path.of(out + ".samples")))) {
+                profiler.writeSamples(w);
+            }
+        }
+    }
 
-        delphiLexer lexer = new delphiLexer(input);
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
-        delphiParser parser = new delphiParser(tokens);
+    private static int usage(PrintStream err) {
+        err.println("Usage: java Main [--jit[=threshold]] [--ic-stats] [--timings] [--io-buffer=bytes] [--io-flush-ms=ms]");
+        err.println("                 [--profile[=out.collapsed]] [--profile-top=n] [--profile-sample=statements]");
+        err.println("                 [--pool[=maxPerClass]] [--pool-debug] [--pool-stats]");
+        err.println("                 [--meter] [--max-statements=n] [--max-calls=n] [--max-depth=n] [--max-objects=n] [--max-cells=n]");
+        err.println("                 [--telemetry] [--no-opt] [--dump-ir] [--cache[=dir]] [--compile=out.dpi] <file.pas | file.dpi>");
+        err.println("       java Main --batch=<dir | manifest> [--threads=n] [--jit[=threshold]] [--no-opt] [--max-...=n]");
+        err.println("       java Main --serve[=socket]     (then: java interpreter.DaemonClient [--socket=path] <same arguments>)");
+        return 1;
+    }
 
-        ParseTree tree = parser.program();
+    // Accepts source or a program image; the parse tree is unreachable once this returns
+    private static Program load(Path file, ImageCache cache, boolean optimize, PhaseTimes times) throws Exception {
+        long t = System.nanoTime();
+        byte[] bytes = Files.readAllBytes(file);
+        t = times.mark("read file", t);
 
-        DelphiInterpreter interpreter = new DelphiInterpreter();
-        interpreter.visit(tree);
+        if (ProgramImage.isImage(bytes)) {
+            Program program = ProgramImage.read(new ByteArrayInputStream(bytes));
+            times.mark("read image", t);
+            return program;
+        }
+        if (cache != null) return cache.load(bytes, times, optimize);
+        return DelphiInterpreter.loadSource(new String(bytes, StandardCharsets.UTF_8), times, optimize);
     }
 }
@@ -0,0 +1,166 @@
+package interpreter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/*
+ * Runs many programs in one JVM (java Main --batch=dir|manifest). Each case is
+ * parsed, loaded and run on its own (own Program, Engine, RuntimeEnv, with
+ * --jit its own Jit and with limits its own Meter) on a work-stealing pool,
+ * with stdin from a file and stdout captured in memory, then compared with the
+ * expected output.
+ *
+ * The compared transcript is the program's stdout followed, if the run threw,
+ * by one line "error: <message>", so an expected failure is written down like
+ * any other output. Cases come from
+ *   a directory:  every *.pas in it, with X.in as stdin and X.out as expected
+ *                 output when those files exist next to X.pas
+ *   a manifest:   one case per line, "program [stdin|-] [expected|-]", paths
+ *                 relative to the manifest; blank lines and # comments skipped
+ * A case without expected output passes when it runs without an error.
+ */
+public final class Batch {
+    private Batch() {}
+
+    public record Case(Path program, Path stdin, Path expected) {}
+
+    public enum Status { PASS, FAIL, ERROR }
+
+    public record Result(Case c, Status status, String transcript, String detail, long nanos) {}
+
+    /* ===================== CASES ===================== */
+
+    public static List<Case> cases(Path dirOrManifest) throws IOException {
+        if (Files.isDirectory(dirOrManifest)) {
+            try (Stream<Path> files = Files.list(dirOrManifest)) {
+                return files.filter(f -> f.getFileName().toString().endsWith(".pas")).sorted()
+                        .map(f -> new Case(f, sibling(f, ".in"), sibling(f, ".out")))
+                        .toList();
+            }
+        }
+        Path base = dirOrManifest.toAbsolutePath().getParent();
+        List<Case> cases = new ArrayList<>();
+        int lineNo = 0;
+        for (String line : Files.readAllLines(dirOrManifest)) {
+            lineNo++;
+            int hash = line.indexOf('#');
+            String[] f = (hash >= 0 ? line.substring(0, hash) : line).trim().split("\\s+");
+            if (f[0].isEmpty()) continue;
+            if (f.length > 3) throw new RuntimeException(dirOrManifest + ":" + lineNo + ": expected: program [stdin|-] [expected|-]");
+            cases.add(new Case(base.resolve(f[0]), optional(base, f, 1), optional(base, f, 2)));
+        }
+        return cases;
+    }
+
+    private static Path sibling(Path pas, String ext) {
+        String name = pas.getFileName().toString();
+        Path p = pas.resolveSibling(name.substring(0, name.length() - ".pas".length()) + ext);
+        return Files.isRegularFile(p) ? p : null;
+    }
+
+    private static Path optional(Path base, String[] fields, int i) {
+        return i < fields.length && !fields[i].equals("-") ? base.resolve(fields[i]) : null;
+    }
+
+    /* ===================== RUNNING ===================== */
+
+    // Results in the order of cases; threads <= 0 means one per processor
+    public static List<Result> run(List<Case> cases, int threads, boolean optimize, int jitThreshold, Meter.Limits limits) throws InterruptedException {
+        ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : new ForkJoinPool();
+        try {
+            List<Future<Result>> pending = new ArrayList<>(cases.size());
+            for (Case c : cases) pending.add(pool.submit(() -> runOne(c, optimize, jitThreshold, limits)));
+            List<Result> results = new ArrayList<>(cases.size());
+            for (Future<Result> f : pending) {
+                try {
+                    results.add(f.get());
+                } catch (ExecutionException ex) {
+                    // runOne reports everything it can; this is a bug in the runner itself
+                    throw new RuntimeException(ex.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static Result runOne(Case c, boolean optimize, int jitThreshold, Meter.Limits limits) {
+        long t = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String error = null;
+        try {
+            byte[] bytes = Files.readAllBytes(c.program);
+            Program program = ProgramImage.isImage(bytes)
+                    ? ProgramImage.read(new ByteArrayInputStream(bytes))
+                    : DelphiInterpreter.loadStrict(new String(bytes, StandardCharsets.UTF_8), optimize);
+            InputStream in = c.stdin != null ? new ByteArrayInputStream(Files.readAllBytes(c.stdin)) : InputStream.nullInputStream();
+            Engine engine = new Engine(program);
+            if (jitThreshold > 0) engine.enableJit(new Jit(jitThreshold));
+            if (!limits.equals(Meter.Limits.NONE)) engine.enableMeter(new Meter(limits));
+            engine.setIO(new ConsoleIO(in, out));
+            engine.run();
+        } catch (IOException ex) {
+            error = ex.toString();
+        } catch (RuntimeException | StackOverflowError ex) {
+            error = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+        }
+        long nanos = System.nanoTime() - t;
+
+        String transcript = normalize(out.toString(StandardCharsets.UTF_8) + (error != null ? "error: " + error + "\n" : ""));
+        if (c.expected == null) {
+            return new Result(c, error == null ? Status.PASS : Status.ERROR, transcript, error, nanos);
+        }
+        String expected;
+        try {
+            expected = normalize(Files.readString(c.expected));
+        } catch (IOException ex) {
+            return new Result(c, Status.ERROR, transcript, "cannot read expected output: " + ex, nanos);
+        }
+        return expected.equals(transcript)
+                ? new Result(c, Status.PASS, transcript, null, nanos)
+                : new Result(c, Status.FAIL, transcript, firstDifference(expected, transcript), nanos);
+    }
+
+    // line endings and a missing final newline do not count as differences
+    private static String normalize(String s) {
+        s = s.replace("\r\n", "\n");
+        return s.isEmpty() || s.endsWith("\n") ? s : s + "\n";
+    }
+
+    private static String firstDifference(String expected, String actual) {
+        String[] e = expected.split("\n", -1), a = actual.split("\n", -1);
+        int i = 0;
+        while (i < e.length && i < a.length && e[i].equals(a[i])) i++;
+        String want = i < e.length ? "\"" + e[i] + "\"" : "end of output";
+        String got = i < a.length ? "\"" + a[i] + "\"" : "end of output";
+        return "line " + (i + 1) + ": expected " + want + ", got " + got;
+    }
+
+    /* ===================== REPORT ===================== */
+
+    // One line per case, then the totals; returns true when every case passed
+    public static boolean report(List<Result> results, long wallNanos, PrintStream out) {
+        int passed = 0;
+        long busy = 0;
+        for (Result r : results) {
+            out.printf("%-5s %9.2f ms  %s%n", r.status, r.nanos / 1e6, r.c.program);
+            if (r.detail != null) out.println("      " + r.detail);
+            if (r.status == Status.PASS) passed++;
+            busy += r.nanos;
+        }
+        double wallMs = wallNanos / 1e6;
+        out.printf("%d programs: %d passed, %d failed in %.1f ms wall (%.1f programs/s, %.1f ms busy, %.2fx parallel)%n",
+                results.size(), passed, results.size() - passed, wallMs,
+                results.size() / (wallNanos / 1e9), busy / 1e6, wallNanos > 0 ? (double) busy / wallNanos : 0);
+        return passed == results.size();
+    }
+}
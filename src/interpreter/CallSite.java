@@ -0,0 +1,130 @@
+package interpreter;
+
+import java.util.Arrays;
+
+/*
+ * One "obj.Method(...)" call site with an inline cache keyed on the receiver's
+ * class. A cached Target holds the resolved MethodInfo and whether the call is
+ * the destructor, and is only installed after the visibility check passed.
+ * That check depends on nothing but the site's enclosing class and the
+ * receiver's class, so a hit can skip it. The Verifier primes the cache with
+ * the declared receiver type before the program runs.
+ *
+ * The cache holds up to MAX_POLY classes. After that the site is megamorphic
+ * and every call takes the slow path, which is a table lookup for receivers
+ * of the declared type: the site keeps the method's vtable slot in that class
+ * (or its itable slot, when the declared type is an interface), and a
+ * subclass or implementer finds its override there without a name lookup.
+ * Hit/miss counters are plain fields, so they are approximate when one
+ * program runs on several threads. Concurrent misses may race to install; the
+ * loser's target is dropped and simply misses again later, which costs a
+ * re-bind but never a wrong dispatch.
+ */
+public final class CallSite {
+    public static final int MAX_POLY = 4;
+
+    public record Target(ClassDef cls, ClassDef.MethodInfo method, boolean isDestructor) {}
+
+    public final String label;  // "<enclosing body>: <receiver>", for stats
+    public final String method;
+    public final ClassDef context; // enclosing class of the call; null in the main block
+
+    // replaced, never mutated, so readers always see a consistent array
+    private volatile Target[] targets = new Target[0];
+    private volatile boolean megamorphic = false;
+
+    // set by the first prime(), before the program runs
+    private ClassDef declared = null;
+    private int declaredSlot = -1;
+
+    public long hits = 0;
+    public long misses = 0;
+
+    public CallSite(String label, String method, ClassDef context) {
+        this.label = label;
+        this.method = method;
+        this.context = context;
+    }
+
+    public Target targetFor(ClassDef cd) {
+        Target[] ts = targets;
+        for (Target t : ts) {
+            if (t.cls == cd) {
+                hits++;
+                return t;
+            }
+        }
+        misses++;
+        Target t = bind(cd);
+        install(t);
+        return t;
+    }
+
+    // Load-time binding for the declared receiver type; does not count as a call
+    public void prime(ClassDef cd) {
+        if (declared == null) {
+            declared = cd;
+            declaredSlot = cd.slotOf(method);
+        }
+        if (cd.isInterface) {
+            // no object has an interface as its class; implementers are bound as they show up
+            if (cd.slotOf(method) < 0) throw new RuntimeException("Method not implemented: " + cd.name + "." + method);
+            return;
+        }
+        for (Target t : targets) if (t.cls == cd) return;
+        install(bind(cd));
+    }
+
+    // Slow path: the slot from the declared type's tables, or else a name lookup; then visibility.
+    // Methods reached through an interface are public, as the interface declares them
+    private Target bind(ClassDef cd) {
+        if (cd == ClassDef.DESTROYED) throw new RuntimeException("Use of destroyed object: method " + method);
+        int slot = -1;
+        boolean viaInterface = false;
+        if (declaredSlot >= 0) {
+            if (declared.isInterface) {
+                slot = cd.interfaceSlot(declared, declaredSlot);
+                viaInterface = slot >= 0;
+            } else if (cd.isSubclassOf(declared)) {
+                slot = declaredSlot;
+            }
+        }
+        if (slot < 0) slot = cd.slotOf(method);
+        if (slot < 0) throw new RuntimeException("Method not implemented: " + cd.name + "." + method);
+
+        ClassDef.Vis vis = cd.vtableVis[slot];
+        if (!viaInterface && !ClassDef.accessible(vis, context, cd.vtableOwners[slot]))
+            throw new RuntimeException("Method access denied (" + vis + "): " + cd.name + "." + method);
+
+        Target t = cd.targets[slot];
+        if (t.method.body == null) throw new RuntimeException("Method not implemented: " + cd.name + "." + method);
+        return t;
+    }
+
+    private void install(Target t) {
+        if (megamorphic) return;
+        Target[] ts = targets;
+        if (ts.length == MAX_POLY) {
+            megamorphic = true;
+            targets = new Target[0];
+            return;
+        }
+        Target[] grown = Arrays.copyOf(ts, ts.length + 1);
+        grown[ts.length] = t;
+        targets = grown;
+    }
+
+    public String state() {
+        if (megamorphic) return "megamorphic";
+        return switch (targets.length) {
+            case 0 -> "uninitialized";
+            case 1 -> "monomorphic";
+            default -> "polymorphic(" + targets.length + ")";
+        };
+    }
+
+    @Override
+    public String toString() {
+        return label + "." + method + " " + state() + " hits=" + hits + " misses=" + misses;
+    }
+}
@@ -6,22 +6,192 @@ public final class ClassDef {
     public enum Vis { PUBLIC, PRIVATE, PROTECTED }
 
     public final String name;
+    public final ClassDef parent;        // null for a root class
+    public final boolean isInterface;    // method headers only: variables may have this type, objects never do
+    public final List<ClassDef> interfaces = new ArrayList<>(); // named after `implements`; a parent's are inherited
 
-    // fields: fieldName -> visibility
+    // ancestry, root first: supers[depth] == this, so "is a subclass of c" is one array load
+    public final ClassDef[] supers;
+    public final int depth;
+
+    // fields declared by this class: fieldName -> visibility
     public final Map<String, Vis> fields = new LinkedHashMap<>();
 
-    // method declarations: methodName -> visibility
+    // fields: fieldName -> declared type name ("integer", an array type or a class name),
+    // inherited ones included
+    public final Map<String, String> fieldTypes = new HashMap<>();
+
+    // field layout ("shape"), fixed by layoutFields() once the class body is registered:
+    // the parent's layout first, then this class's fields in declaration order. Inherited fields keep their
+    // offsets, so a field site bound for a class also fits every subclass. Offsets index ObjectInstance.fields
+    public final Map<String, Integer> fieldIndex = new HashMap<>();
+    public String[] fieldNames = new String[0];
+    public Vis[] fieldVis = new Vis[0];
+    public ClassDef[] fieldOwners = new ClassDef[0]; // declaring class per offset, for visibility
+    public IntArray.Type[] fieldArrays = new IntArray.Type[0]; // array type per offset, else null
+    public boolean hasArrayFields = false;
+
+    // method declarations of this class: methodName -> visibility
     public final Map<String, Vis> methodVis = new HashMap<>();
 
-    // method implementations: methodName -> MethodInfo
-    public final Map<String, MethodInfo> methods = new HashMap<>();
+    // methods of this class (headers until implemented): methodName -> MethodInfo;
+    // inherited ones are in vtable
+    public final Map<String, MethodInfo> methods = new LinkedHashMap<>();
 
-    // convenience
+    // this class's own, or else the inherited one (once linked)
     public MethodInfo constructor = null;
     public MethodInfo destructor = null;
 
+    // dispatch tables, built by link(). A method keeps its parent's slot when overridden, so a call site bound
+    // for a class finds the method at the same slot in every subclass; private methods are never overridden.
+    // An itable maps an interface's slots to vtable slots of this class
+    private final Map<String, Integer> slots = new HashMap<>();
+    public MethodInfo[] vtable = new MethodInfo[0];
+    public Vis[] vtableVis = new Vis[0];
+    public ClassDef[] vtableOwners = new ClassDef[0]; // class whose declaration the slot's visibility comes from
+    public CallSite.Target[] targets = new CallSite.Target[0];
+    private ClassDef[] itableKeys = new ClassDef[0];
+    private int[][] itables = new int[0][];
+
+    // class of objects poisoned by a debug ObjectPool; no field or method resolves against it
+    public static final ClassDef DESTROYED = new ClassDef("<destroyed>");
+
     public ClassDef(String name) {
+        this(name, null, false);
+    }
+
+    public ClassDef(String name, ClassDef parent, boolean isInterface) {
         this.name = name;
+        this.parent = parent;
+        this.isInterface = isInterface;
+        this.depth = parent == null ? 0 : parent.depth + 1;
+        this.supers = parent == null ? new ClassDef[1] : Arrays.copyOf(parent.supers, depth + 1);
+        supers[depth] = this;
+    }
+
+    public boolean isSubclassOf(ClassDef c) {
+        return c.depth <= depth && supers[c.depth] == c;
+    }
+
+    // Private members are reachable from the declaring class's own methods,
+    // protected ones also from its subclasses'
+    public static boolean accessible(Vis vis, ClassDef from, ClassDef owner) {
+        return switch (vis) {
+            case PUBLIC -> true;
+            case PRIVATE -> from == owner;
+            case PROTECTED -> from != null && from.isSubclassOf(owner);
+        };
+    }
+
+    public void layoutFields() {
+        fieldIndex.clear();
+        List<String> names = new ArrayList<>();
+        List<Vis> vis = new ArrayList<>();
+        List<ClassDef> owners = new ArrayList<>();
+        if (parent != null) {
+            names.addAll(List.of(parent.fieldNames));
+            vis.addAll(List.of(parent.fieldVis));
+            owners.addAll(List.of(parent.fieldOwners));
+            parent.fieldTypes.forEach(fieldTypes::putIfAbsent);
+        }
+        for (var f : fields.entrySet()) {
+            if (parent != null && parent.fieldIndex.containsKey(f.getKey())) {
+                ClassDef owner = parent.fieldOwners[parent.fieldIndex.get(f.getKey())];
+                throw new RuntimeException("Field " + name + "." + f.getKey() + " hides the field inherited from " + owner.name);
+            }
+            names.add(f.getKey());
+            vis.add(f.getValue());
+            owners.add(this);
+        }
+        fieldNames = names.toArray(new String[0]);
+        fieldVis = vis.toArray(new Vis[0]);
+        fieldOwners = owners.toArray(new ClassDef[0]);
+        fieldArrays = new IntArray.Type[fieldNames.length];
+        hasArrayFields = false;
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldIndex.put(fieldNames[i], i);
+            fieldArrays[i] = IntArray.Type.of(fieldTypes.get(fieldNames[i]));
+            hasArrayFields |= fieldArrays[i] != null;
+        }
+    }
+
+    /* ===================== DISPATCH ===================== */
+
+    // Builds the vtable and itables once every method of this class is attached;
+    // the parent must be linked first
+    public void link() {
+        List<MethodInfo> table = new ArrayList<>();
+        List<Vis> vis = new ArrayList<>();
+        List<ClassDef> owners = new ArrayList<>();
+        slots.clear();
+        if (parent != null) {
+            if (constructor == null) constructor = parent.constructor;
+            if (destructor == null) destructor = parent.destructor;
+            table.addAll(List.of(parent.vtable));
+            vis.addAll(List.of(parent.vtableVis));
+            owners.addAll(List.of(parent.vtableOwners));
+            slots.putAll(parent.slots);
+        }
+        for (MethodInfo mi : methods.values()) {
+            Vis v = methodVis.getOrDefault(mi.methodName, Vis.PUBLIC);
+            // private methods neither override nor get overridden: calls in the declaring class's own
+            // methods must keep reaching its method, so a private one or a redeclared one gets a fresh slot
+            Integer slot = v == Vis.PRIVATE ? null : slots.get(mi.methodName);
+            if (slot != null && vis.get(slot) == Vis.PRIVATE) slot = null;
+            if (slot == null) {
+                slot = table.size();
+                slots.put(mi.methodName, slot);
+                table.add(null);
+                vis.add(null);
+                owners.add(null);
+            }
+            table.set(slot, mi);
+            vis.set(slot, v);
+            owners.set(slot, this);
+        }
+        vtable = table.toArray(new MethodInfo[0]);
+        vtableVis = vis.toArray(new Vis[0]);
+        vtableOwners = owners.toArray(new ClassDef[0]);
+
+        String dtor = destructor != null ? destructor.methodName : "Destroy";
+        targets = new CallSite.Target[vtable.length];
+        for (int i = 0; i < vtable.length; i++) {
+            targets[i] = new CallSite.Target(this, vtable[i], vtable[i].methodName.equalsIgnoreCase(dtor));
+        }
+
+        List<ClassDef> keys = new ArrayList<>();
+        List<int[]> tables = new ArrayList<>();
+        if (parent != null) {
+            keys.addAll(List.of(parent.itableKeys));
+            tables.addAll(List.of(parent.itables));
+        }
+        for (ClassDef iface : interfaces) {
+            if (keys.contains(iface)) continue;
+            int[] it = new int[iface.vtable.length];
+            for (int i = 0; i < it.length; i++) {
+                it[i] = slotOf(iface.vtable[i].methodName);
+                if (it[i] < 0) throw new RuntimeException("Class " + name + " does not implement " + iface.name + "." + iface.vtable[i].methodName);
+            }
+            keys.add(iface);
+            tables.add(it);
+        }
+        // inherited itables point at the parent's slots, which are this class's slots for the same methods
+        itableKeys = keys.toArray(new ClassDef[0]);
+        itables = tables.toArray(new int[0][]);
+    }
+
+    public int slotOf(String method) {
+        Integer slot = slots.get(method);
+        return slot == null ? -1 : slot;
+    }
+
+    // the vtable slot behind slot i of an interface, or -1 if this class does not implement it
+    public int interfaceSlot(ClassDef iface, int i) {
+        ClassDef[] keys = itableKeys;
+        for (int k = 0; k < keys.length; k++) {
+            if (keys[k] == iface) return itables[k][i];
+        }
+        return -1;
     }
 
     public static final class MethodInfo {
@@ -29,15 +199,25 @@ public final class ClassDef {
         public final String methodName;
         public final boolean isFunction; // procedure vs function
         public final List<String> paramNames;
-        public final delphiParser.BlockContext body; // AST for the block
+        public final List<String> paramTypes; // declared type names, parallel to paramNames
+        public final String returnType;       // functions only, else null
+        public Ir.Stmt body; // lowered block; null until the implementation is loaded
+        public Code code;    // linear form of body, built by Program.link()
+
+        // compiled tier state, owned by Jit; the counter is approximate under concurrent runs
+        public int invocations = 0;
+        public volatile CompiledBody compiled = null;
+        public volatile boolean jitQueued = false;
+        public volatile boolean jitFailed = false;
 
         public MethodInfo(String className, String methodName, boolean isFunction,
-                          List<String> paramNames, delphiParser.BlockContext body) {
+                          List<String> paramNames, List<String> paramTypes, String returnType) {
             this.className = className;
             this.methodName = methodName;
             this.isFunction = isFunction;
             this.paramNames = paramNames;
-            this.body = body;
+            this.paramTypes = paramTypes;
+            this.returnType = returnType;
         }
     }
 }
@@ -0,0 +1,50 @@
+package interpreter;
+
+/*
+ * Linear form of one method body (or the main block), run by Engine's
+ * interpreter loop. Every call is its own instruction, so entering a method
+ * pushes an activation record instead of recursing on the Java stack; the
+ * expressions left inside instructions are call-free Ir trees, evaluated
+ * directly (with evalInt keeping integer arithmetic unboxed).
+ *
+ * Each instruction is an opcode followed by an index into consts and, for
+ * jumps, a target pc:
+ *   EXEC k            run the call-free statement consts[k]
+ *   CALL k            instance call described by consts[k] (a Call)
+ *   NEW k             constructor call described by consts[k] (a New)
+ *   RETURN_VALUE k    return the value of expression consts[k]
+ *   RETURN            return the body's default result (no operand)
+ *   JUMP pc           continue at pc (no const)
+ *   JUMP_FALSE k pc   continue at pc if the call-free expression consts[k] is 0
+ *   JUMP_TRUE k pc    continue at pc if it is not 0
+ *   FOR_INIT k pc     start the loop consts[k] (a ForInit); pc is the loop exit
+ *   FOR_NEXT k pc     step the Ir.For consts[k] and continue at pc, its body, unless done
+ *
+ * A loop whose body cannot leave the frame (no calls, no return) is not
+ * split up at all: it runs as one EXEC of its Ir, which keeps the counter in
+ * a Java local.
+ *
+ * A call's arguments are evaluated straight into the callee's slots, which
+ * start right after the caller's frameSize slots. Its result goes to the
+ * caller's slot `dest`, or is dropped when dest is -1.
+ */
+public final class Code {
+    public static final int EXEC = 0, CALL = 1, NEW = 2, RETURN_VALUE = 3, RETURN = 4,
+            JUMP = 5, JUMP_FALSE = 6, JUMP_TRUE = 7, FOR_INIT = 8, FOR_NEXT = 9;
+
+    public record Call(CallSite site, VarRef receiver, Ir.Expr[] args, int dest) {}
+    public record New(ClassDef cls, ClassDef.MethodInfo ctor, Ir.Expr[] args, int dest) {}
+    public record ForInit(Ir.For loop, Ir.Expr from, Ir.Expr limit) {} // bounds with their calls already emitted
+
+    public final int[] ops;
+    public final Object[] consts;
+    public final Ir.Stmt[] origin; // source statement starting at each pc, else null (for profiling)
+    public final int frameSize;    // params + loop counters + temporaries
+
+    public Code(int[] ops, Object[] consts, Ir.Stmt[] origin, int frameSize) {
+        this.ops = ops;
+        this.consts = consts;
+        this.origin = origin;
+        this.frameSize = frameSize;
+    }
+}
@@ -0,0 +1,7 @@
+package interpreter;
+
+// A method body (or the main block) translated to a JVM class by Jit.
+// `locals` holds the params; returns the function result, or null at the end of the body.
+public interface CompiledBody {
+    Value run(Engine e, Value[] locals, ObjectInstance self);
+}
@@ -0,0 +1,179 @@
+package interpreter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Console I/O for writeln/readln. Output is formatted straight into a byte
+ * buffer and written out only when the buffer fills, when the configured
+ * interval has passed, before a readln (so prompts are visible) and when the
+ * program ends. Input is tokenized byte by byte from a buffered stream; only
+ * integers are ever read.
+ */
+public final class ConsoleIO {
+    public static final int DEFAULT_BUFFER = 1 << 16;
+
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final InputStream in;
+    private final byte[] inBuf = new byte[1 << 16];
+    private int inPos = 0, inLen = 0;
+    private long inFilled = 0; // bytes ever read into inBuf
+
+    private final OutputStream out;
+    private final byte[] outBuf;
+    private int outPos = 0;
+    private long outWritten = 0; // bytes handed to `out`
+
+    private final long flushIntervalNanos; // 0 = only flush when full / on readln / at exit
+    private long lastFlush = System.nanoTime();
+
+    public ConsoleIO(InputStream in, OutputStream out) {
+        this(in, out, DEFAULT_BUFFER, 0);
+    }
+
+    public ConsoleIO(InputStream in, OutputStream out, int bufferSize, long flushIntervalMillis) {
+        this.in = in;
+        this.out = out;
+        this.outBuf = new byte[Math.max(bufferSize, 32)];
+        this.flushIntervalNanos = flushIntervalMillis * 1_000_000L;
+    }
+
+    /* ===================== OUTPUT ===================== */
+
+    public void writeln(Value[] args) {
+        if (args.length == 0) {
+            newline();
+            return;
+        }
+        for (Value v : args) {
+            if (v.kind == Value.Kind.INT) writeInt(v.asInt());
+            else writeAscii(v.toString());
+            newline();
+        }
+    }
+
+    private void writeInt(int x) {
+        if (outBuf.length - outPos < 11) drain();
+        if (x == Integer.MIN_VALUE) {
+            writeAscii("-2147483648");
+            return;
+        }
+        if (x < 0) {
+            outBuf[outPos++] = '-';
+            x = -x;
+        }
+        int start = outPos;
+        do {
+            outBuf[outPos++] = (byte) ('0' + x % 10);
+            x /= 10;
+        } while (x != 0);
+        // digits were produced least significant first
+        for (int i = start, j = outPos - 1; i < j; i++, j--) {
+            byte t = outBuf[i];
+            outBuf[i] = outBuf[j];
+            outBuf[j] = t;
+        }
+    }
+
+    private void writeAscii(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if (outBuf.length - outPos < b.length) drain();
+        if (b.length > outBuf.length) {
+            write(b, b.length);
+            return;
+        }
+        System.arraycopy(b, 0, outBuf, outPos, b.length);
+        outPos += b.length;
+    }
+
+    private void newline() {
+        if (outBuf.length - outPos < NEWLINE.length) drain();
+        for (byte b : NEWLINE) outBuf[outPos++] = b;
+
+        if (flushIntervalNanos > 0 && System.nanoTime() - lastFlush >= flushIntervalNanos) flush();
+    }
+
+    // empty the buffer without forcing the underlying stream
+    private void drain() {
+        if (outPos == 0) return;
+        write(outBuf, outPos);
+        outPos = 0;
+    }
+
+    public void flush() {
+        drain();
+        try {
+            out.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        lastFlush = System.nanoTime();
+    }
+
+    private void write(byte[] b, int len) {
+        try {
+            out.write(b, 0, len);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        outWritten += len;
+    }
+
+    // bytes formatted so far, buffered ones included
+    public long bytesWritten() {
+        return outWritten + outPos;
+    }
+
+    /* ===================== INPUT ===================== */
+
+    public int readInt() {
+        flush();
+
+        int c = read();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') c = read();
+        if (c < 0) throw new RuntimeException("readln: unexpected end of input");
+
+        boolean neg = false;
+        if (c == '-' || c == '+') {
+            neg = c == '-';
+            c = read();
+        }
+        if (c < '0' || c > '9') throw new RuntimeException("readln: expected an integer");
+
+        long acc = 0;
+        while (c >= '0' && c <= '9') {
+            acc = acc * 10 + (c - '0');
+            if (acc > (long) Integer.MAX_VALUE + 1) throw new RuntimeException("readln: integer out of range");
+            c = read();
+        }
+        if (c >= 0 && c != ' ' && c != '\n' && c != '\r' && c != '\t')
+            throw new RuntimeException("readln: expected an integer");
+
+        long v = neg ? -acc : acc;
+        if (v > Integer.MAX_VALUE) throw new RuntimeException("readln: integer out of range");
+        return (int) v;
+    }
+
+    private int read() {
+        if (inPos == inLen) {
+            try {
+                inLen = in.read(inBuf, 0, inBuf.length);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            inPos = 0;
+            if (inLen <= 0) {
+                inLen = 0;
+                return -1;
+            }
+            inFilled += inLen;
+        }
+        return inBuf[inPos++];
+    }
+
+    // bytes consumed by readln so far
+    public long bytesRead() {
+        return inFilled - (inLen - inPos);
+    }
+}
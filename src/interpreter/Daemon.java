@@ -0,0 +1,222 @@
+package interpreter;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+
+/*
+ * Long-lived server for `java Main --serve`: listens on a Unix domain socket
+ * and runs one request per connection (see DaemonProtocol), each on its own
+ * thread, with the client's working directory, arguments and stdin. Output is
+ * streamed back as the program flushes it.
+ *
+ * What stays warm between requests is the JVM itself (loaded and compiled
+ * parser, interpreter and javac) plus Warm: loaded Programs keyed by path and
+ * optimisation setting, reused while the file's mtime and size are unchanged.
+ * A cached Program keeps its inline caches and the bodies its Jit compiled, so
+ * a hot script starts already tiered up. Concurrent requests for the same file
+ * share its Program the way Executions does.
+ */
+public final class Daemon {
+    private Daemon() {}
+
+    // What the daemon runs for each request: Main's CLI with redirected I/O
+    @FunctionalInterface
+    public interface Handler {
+        int run(String[] args, Path cwd, InputStream in, OutputStream out, PrintStream err, Warm warm) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        Program load() throws Exception;
+    }
+
+    /* ===================== WARM STATE ===================== */
+
+    public static final class Warm {
+        public static final int DEFAULT_MAX_PROGRAMS = 64;
+
+        private record Key(Path file, boolean optimize) {}
+
+        private static final class Cached {
+            final long mtime, size;
+            final Program program;
+
+            Cached(long mtime, long size, Program program) {
+                this.mtime = mtime;
+                this.size = size;
+                this.program = program;
+            }
+        }
+
+        private final int maxPrograms;
+        private final Map<Key, Cached> programs;
+        private final Map<Program, Map<Integer, Jit>> jits = new WeakHashMap<>();
+        private long hits, misses;
+
+        public Warm(int maxPrograms) {
+            this.maxPrograms = maxPrograms;
+            this.programs = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+                    return size() > Warm.this.maxPrograms;
+                }
+            };
+        }
+
+        // The cached Program for file, or a freshly loaded one if the file changed since
+        public Program program(Path file, boolean optimize, Loader loader) throws Exception {
+            Key key = new Key(file.toAbsolutePath().normalize(), optimize);
+            BasicFileAttributes attrs = Files.readAttributes(key.file, BasicFileAttributes.class);
+            long mtime = attrs.lastModifiedTime().toMillis(), size = attrs.size();
+            synchronized (this) {
+                Cached e = programs.get(key);
+                if (e != null && e.mtime == mtime && e.size == size) {
+                    hits++;
+                    return e.program;
+                }
+                misses++;
+            }
+            // loaded outside the lock: a slow parse must not hold up other requests
+            Program program = loader.load();
+            synchronized (this) {
+                programs.put(key, new Cached(mtime, size, program));
+            }
+            return program;
+        }
+
+        // One Jit per Program and threshold: its generated classes go away with the Program once it is evicted.
+        // Compiled bodies live on the Program's methods, so a method tiered up under one threshold stays compiled.
+        public Jit jit(Program program, int threshold) {
+            synchronized (jits) {
+                return jits.computeIfAbsent(program, p -> new HashMap<>()).computeIfAbsent(threshold, Jit::new);
+            }
+        }
+
+        public synchronized String stats() {
+            return "programs cached=" + programs.size() + " hits=" + hits + " misses=" + misses;
+        }
+    }
+
+    /* ===================== SERVER ===================== */
+
+    // Serves until the process is killed; the socket file is removed on exit
+    public static void serve(Path socket, Handler handler, PrintStream log) throws IOException {
+        claim(socket);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(socket);
+            } catch (IOException ignored) {
+            }
+        }));
+        log.println("delphi daemon listening on " + socket);
+
+        Warm warm = new Warm(Warm.DEFAULT_MAX_PROGRAMS);
+        ExecutorService pool = Executions.newExecutor();
+        while (true) {
+            SocketChannel ch = server.accept();
+            pool.submit(() -> handle(ch, handler, warm, log));
+        }
+    }
+
+    // A socket file nobody answers on is left over from a killed daemon
+    private static void claim(Path socket) throws IOException {
+        if (!Files.exists(socket)) return;
+        boolean live;
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+            live = true;
+        } catch (IOException ex) {
+            live = false;
+        }
+        if (live) throw new IOException("A daemon is already listening on " + socket);
+        Files.delete(socket);
+    }
+
+    private static void handle(SocketChannel ch, Handler handler, Warm warm, PrintStream log) {
+        try (ch) {
+            DataInputStream in = DaemonProtocol.input(ch);
+            DataOutputStream out = DaemonProtocol.output(ch);
+            if (in.readByte() != DaemonProtocol.REQUEST) throw new IOException("expected a request frame");
+            DataInputStream req = new DataInputStream(new ByteArrayInputStream(DaemonProtocol.readPayload(in)));
+            Path cwd = Path.of(req.readUTF());
+            String[] args = new String[req.readInt()];
+            for (int i = 0; i < args.length; i++) args[i] = req.readUTF();
+
+            PrintStream err = new PrintStream(new BufferedOutputStream(DaemonProtocol.frames(out, DaemonProtocol.STDERR)), true, StandardCharsets.UTF_8);
+            int code;
+            try {
+                code = handler.run(args, cwd, new StdinFrames(in), DaemonProtocol.frames(out, DaemonProtocol.STDOUT), err, warm);
+            } catch (Throwable ex) {
+                // reported the way an uncaught exception ends a cold run
+                err.print("Exception in thread \"main\" ");
+                ex.printStackTrace(err);
+                code = 1;
+            }
+            err.flush();
+            byte[] b = ByteBuffer.allocate(4).putInt(code).array();
+            DaemonProtocol.writeFrame(out, DaemonProtocol.EXIT, b, 0, b.length);
+        } catch (IOException ex) {
+            // the client went away; nothing to report back to
+            log.println("delphi daemon: connection dropped: " + ex);
+        }
+    }
+
+    // The request's stdin, pulled from the connection only as the program reads it
+    private static final class StdinFrames extends InputStream {
+        private final DataInputStream in;
+        private byte[] chunk = new byte[0];
+        private int pos;
+        private boolean eof;
+
+        StdinFrames(DataInputStream in) {
+            this.in = in;
+        }
+
+        private boolean fill() throws IOException {
+            while (!eof && pos == chunk.length) {
+                byte type = in.readByte();
+                if (type == DaemonProtocol.STDIN_EOF) {
+                    eof = true;
+                } else if (type == DaemonProtocol.STDIN) {
+                    chunk = DaemonProtocol.readPayload(in);
+                    pos = 0;
+                } else {
+                    throw new IOException("unexpected frame " + type);
+                }
+            }
+            return pos < chunk.length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? chunk[pos++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+            int n = Math.min(len, chunk.length - pos);
+            System.arraycopy(chunk, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package interpreter;
+
+import java.io.*;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/*
+ * Thin client for a running daemon (java Main --serve): takes exactly Main's
+ * command line, plus an optional leading --socket=path, and behaves like
+ * `java Main` with those arguments, i.e. same stdout, stderr and exit code,
+ * but the program runs in the warm daemon. Only java.base and DaemonProtocol
+ * are loaded here, so the client JVM starts as fast as a JVM can.
+ */
+public final class DaemonClient {
+    private DaemonClient() {}
+
+    public static void main(String[] args) throws IOException {
+        Path socket = DaemonProtocol.defaultSocket();
+        int first = 0;
+        if (args.length > 0 && args[0].startsWith("--socket=")) {
+            socket = Path.of(args[0].substring("--socket=".length()));
+            first = 1;
+        }
+
+        SocketChannel ch;
+        try {
+            ch = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException ex) {
+            System.err.println("No daemon on " + socket + " (start one with: java Main --serve): " + ex.getMessage());
+            System.exit(2);
+            return;
+        }
+        DataInputStream in = DaemonProtocol.input(ch);
+        DataOutputStream out = DaemonProtocol.output(ch);
+
+        ByteArrayOutputStream req = new ByteArrayOutputStream();
+        DataOutputStream r = new DataOutputStream(req);
+        r.writeUTF(Path.of("").toAbsolutePath().toString());
+        r.writeInt(args.length - first);
+        for (int i = first; i < args.length; i++) r.writeUTF(args[i]);
+        DaemonProtocol.writeFrame(out, DaemonProtocol.REQUEST, req.toByteArray(), 0, req.size());
+
+        // stdin is forwarded eagerly; the daemon only reads as far as the program does
+        Thread pump = new Thread(() -> {
+            byte[] buf = new byte[1 << 16];
+            try {
+                for (int n; (n = System.in.read(buf)) > 0; ) DaemonProtocol.writeFrame(out, DaemonProtocol.STDIN, buf, 0, n);
+                DaemonProtocol.writeFrame(out, DaemonProtocol.STDIN_EOF, buf, 0, 0);
+            } catch (IOException ignored) {
+                // the run finished without reading all of stdin
+            }
+        }, "stdin");
+        pump.setDaemon(true);
+        pump.start();
+
+        OutputStream stdout = new FileOutputStream(FileDescriptor.out);
+        while (true) {
+            byte type = in.readByte();
+            byte[] b = DaemonProtocol.readPayload(in);
+            if (type == DaemonProtocol.STDOUT) {
+                stdout.write(b);
+            } else if (type == DaemonProtocol.STDERR) {
+                System.err.write(b);
+                System.err.flush();
+            } else if (type == DaemonProtocol.EXIT) {
+                System.exit(ByteBuffer.wrap(b).getInt());
+            } else {
+                throw new IOException("unexpected frame " + type);
+            }
+        }
+    }
+}
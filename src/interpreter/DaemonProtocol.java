@@ -0,0 +1,94 @@
+package interpreter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/*
+ * Wire format between DaemonClient and Daemon over a Unix domain socket.
+ * Every message is a frame: byte type, int length, then length bytes.
+ *
+ *   client -> daemon:  REQUEST (UTF cwd, int argc, argc x UTF arg), then any
+ *                      number of STDIN frames and one STDIN_EOF
+ *   daemon -> client:  STDOUT / STDERR frames as the run produces them, then
+ *                      EXIT (int exit code)
+ *
+ * The daemon reads STDIN frames only when the program asks for input, so a
+ * script that never calls readln never waits for the client's stdin. Only
+ * java.base is used here: the client must not load the interpreter.
+ */
+public final class DaemonProtocol {
+    public static final byte REQUEST = 1, STDIN = 2, STDIN_EOF = 3, STDOUT = 4, STDERR = 5, EXIT = 6;
+
+    private DaemonProtocol() {}
+
+    public static Path defaultSocket() {
+        return Path.of(System.getProperty("java.io.tmpdir"), "delphi-" + System.getProperty("user.name") + ".sock");
+    }
+
+    public static void writeFrame(DataOutputStream out, byte type, byte[] b, int off, int len) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(len);
+            out.write(b, off, len);
+            out.flush();
+        }
+    }
+
+    // payload of a frame whose type was just read
+    public static byte[] readPayload(DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return b;
+    }
+
+    /* ===================== CHANNEL STREAMS ===================== */
+
+    // Plain streams over a blocking channel. Channels.newInputStream is avoided on purpose:
+    // the client reads output while another thread forwards stdin, and those must not share a lock.
+    public static DataInputStream input(SocketChannel ch) {
+        return new DataInputStream(new BufferedInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return len == 0 ? 0 : ch.read(ByteBuffer.wrap(b, off, len));
+            }
+        }, 1 << 16));
+    }
+
+    public static DataOutputStream output(SocketChannel ch) {
+        return new DataOutputStream(new BufferedOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+                while (buf.hasRemaining()) ch.write(buf);
+            }
+        }, 1 << 16));
+    }
+
+    // An OutputStream whose every write becomes one frame of the given type
+    public static OutputStream frames(DataOutputStream out, byte type) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (len > 0) writeFrame(out, type, b, off, len);
+            }
+        };
+    }
+}
@@ -1,36 +1,185 @@
 package interpreter;
 
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
 import java.util.*;
-import java.util.stream.Collectors;
 
+/*
+ * Loads a parsed program: registers classes, globals and method headers, then
+ * lowers every method body and the main block to Ir, verifies encapsulation
+ * over all of them and (unless disabled) runs the Optimizer. The returned
+ * Program holds no reference to the parse tree, so callers that drop the tree
+ * after load() free it (and its token stream) before the program runs.
+ *
+ * Parsing is two-stage: SLL prediction with a bail-out error strategy handles
+ * almost every input, and only when it fails is the input re-parsed with full
+ * LL and the normal error reporting. SLL never accepts an invalid program, so
+ * the fallback only costs time on inputs SLL cannot decide (or real errors).
+ */
 public class DelphiInterpreter extends delphiBaseVisitor<Value> {
 
-    private final RuntimeEnv env = new RuntimeEnv();
-    private final Scanner scanner = new Scanner(System.in);
+    private final Program program = new Program();
+    private final PhaseTimes times;
+    private final boolean optimize;
 
     // When parsing class members, visibility section affects subsequent members
     private ClassDef.Vis currentVis = ClassDef.Vis.PUBLIC;
 
+    // method bodies waiting to be lowered once every class and global is known
+    private final Map<ClassDef.MethodInfo, delphiParser.BlockContext> pendingBodies = new LinkedHashMap<>();
+
+    public DelphiInterpreter() {
+        this(new PhaseTimes());
+    }
+
+    public DelphiInterpreter(PhaseTimes times) {
+        this(times, true);
+    }
+
+    // optimize = false skips the Optimizer, so bodies run exactly as lowered
+    public DelphiInterpreter(PhaseTimes times, boolean optimize) {
+        this.times = times;
+        this.optimize = optimize;
+    }
+
+    // Parses and loads source text; lexer, parser and tree are garbage once this returns
+    public static Program loadSource(String code) {
+        return loadSource(code, new PhaseTimes());
+    }
+
+    public static Program loadSource(String code, PhaseTimes times) {
+        return loadSource(code, times, true);
+    }
+
+    public static Program loadSource(String code, PhaseTimes times, boolean optimize) {
+        return loadSource(code, times, false, optimize);
+    }
+
+    // For embedders: the first syntax error is thrown instead of printed and recovered from
+    public static Program loadStrict(String code) {
+        return loadStrict(code, true);
+    }
+
+    public static Program loadStrict(String code, boolean optimize) {
+        return loadSource(code, new PhaseTimes(), true, optimize);
+    }
+
+    private static Program loadSource(String code, PhaseTimes times, boolean strict, boolean optimize) {
+        long t = System.nanoTime();
+        delphiLexer lexer = new delphiLexer(CharStreams.fromString(code));
+        if (strict) {
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(THROWING);
+        }
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        tokens.fill();
+        t = times.mark("lex", t);
+
+        delphiParser.ProgramContext tree = parse(tokens, times, t, strict);
+        return new DelphiInterpreter(times, optimize).load(tree);
+    }
+
+    private static final BaseErrorListener THROWING = new BaseErrorListener() {
+        @Override
+        public void syntaxError(Recognizer<?, ?> r, Object sym, int line, int col, String msg, RecognitionException e) {
+            throw new RuntimeException("Syntax error at line " + line + ":" + col + ": " + msg);
+        }
+    };
+
+    private static delphiParser.ProgramContext parse(CommonTokenStream tokens, PhaseTimes times, long t, boolean strict) {
+        delphiParser parser = new delphiParser(tokens);
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            delphiParser.ProgramContext tree = parser.program();
+            times.mark("parse (SLL)", t);
+            return tree;
+        } catch (ParseCancellationException ex) {
+            t = times.mark("parse (SLL, failed)", t);
+        }
+
+        tokens.seek(0);
+        parser.reset();
+        parser.addErrorListener(strict ? THROWING : ConsoleErrorListener.INSTANCE);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        delphiParser.ProgramContext tree = parser.program();
+        times.mark("parse (LL)", t);
+        return tree;
+    }
+
     @Override
     public Value visitProgram(delphiParser.ProgramContext ctx) {
+        new Engine(load(ctx)).run();
+        return Value.nil();
+    }
+
+    public Program load(delphiParser.ProgramContext ctx) {
+        long t = System.nanoTime();
         if (ctx.typeSection() != null) visit(ctx.typeSection());
+        t = times.mark("register classes", t);
         if (ctx.varSection() != null) visit(ctx.varSection());
         if (ctx.methodImplSection() != null) visit(ctx.methodImplSection());
-        return visit(ctx.block());
+        for (ClassDef cd : program.classes.values()) cd.link(); // declaration order: parents and interfaces first
+        t = times.mark("attach methods", t);
+
+        Lowerer lowerer = new Lowerer(program);
+        for (var e : pendingBodies.entrySet()) {
+            ClassDef.MethodInfo mi = e.getKey();
+            mi.body = lowerer.lowerBody(program.classes.get(mi.className), mi, e.getValue());
+        }
+        program.main = lowerer.lowerBody(null, null, ctx.block());
+
+        // encapsulation is checked once every body exists, before anything runs
+        Verifier verifier = new Verifier(program);
+        for (ClassDef.MethodInfo mi : pendingBodies.keySet()) verifier.verify(mi.body);
+        verifier.verify(program.main);
+        pendingBodies.clear();
+        t = times.mark("lower + verify", t);
+
+        if (optimize) {
+            new Optimizer(program).optimize();
+            t = times.mark("optimize", t);
+        }
+
+        program.link();
+        times.mark("link", t);
+
+        return program;
     }
 
     /* ===================== TYPE / CLASS ===================== */
 
     @Override
     public Value visitTypeSection(delphiParser.TypeSectionContext ctx) {
-        for (delphiParser.TypeDeclContext td : ctx.typeDecl()) {
+        // a parent or interface must be declared before the classes that name it
+        for (delphiParser.TypeDeclContext decl : ctx.typeDecl()) {
+            if (decl instanceof delphiParser.InterfaceTypeDeclContext id) {
+                registerInterface(id);
+                continue;
+            }
+            delphiParser.ClassTypeDeclContext td = (delphiParser.ClassTypeDeclContext) decl;
             String className = td.ID().getText();
-            ClassDef cd = new ClassDef(className);
+            delphiParser.ClassTypeContext type = td.classType();
+            ClassDef parent = type.ID() != null ? declaredType(type.ID().getText(), className) : null;
+            if (parent != null && parent.isInterface)
+                throw new RuntimeException("Class " + className + " cannot inherit from interface " + parent.name + ", use implements");
+            ClassDef cd = new ClassDef(className, parent, false);
+            if (type.idList() != null) {
+                for (var id : type.idList().ID()) {
+                    ClassDef iface = declaredType(id.getText(), className);
+                    if (!iface.isInterface) throw new RuntimeException("Class " + className + " implements " + iface.name + ", which is not an interface");
+                    cd.interfaces.add(iface);
+                }
+            }
 
             currentVis = ClassDef.Vis.PUBLIC;
 
-            delphiParser.ClassMembersContext members = td.classType().classMembers();
-            for (var child : members.children) {
+            delphiParser.ClassMembersContext members = type.classMembers();
+            for (var child : members.children != null ? members.children : List.of()) {
                 if (child instanceof delphiParser.VisibilitySectionContext vs) {
                     currentVis = parseVis(vs.getStart().getText());
                     for (delphiParser.ClassMemberDeclContext cm : vs.classMemberDecl()) {
@@ -41,11 +190,31 @@ public class DelphiInterpreter extends delphiBaseVisitor<Value> {
                 }
             }
 
-            env.classes.put(className, cd);
+            cd.layoutFields();
+            program.classes.put(className, cd);
         }
         return Value.nil();
     }
 
+    private ClassDef declaredType(String name, String user) {
+        ClassDef cd = program.classes.get(name);
+        if (cd == null) throw new RuntimeException("Unknown class or interface: " + name + " (in class " + user + "; declare it first)");
+        return cd;
+    }
+
+    // An interface is a ClassDef holding only public method headers; it gets a vtable so implementers get itables
+    private void registerInterface(delphiParser.InterfaceTypeDeclContext ctx) {
+        ClassDef cd = new ClassDef(ctx.ID().getText(), null, true);
+        for (delphiParser.InterfaceMethodDeclContext m : ctx.interfaceType().interfaceMembers().interfaceMethodDecl()) {
+            boolean isFunc = m.functionHeader() != null;
+            String methodName = isFunc ? m.functionHeader().ID().getText() : m.procedureHeader().ID().getText();
+            cd.methodVis.put(methodName, ClassDef.Vis.PUBLIC);
+            cd.methods.putIfAbsent(methodName, new ClassDef.MethodInfo(cd.name, methodName, isFunc, List.of(), List.of(), null));
+        }
+        cd.layoutFields();
+        program.classes.put(cd.name, cd);
+    }
+
     private ClassDef.Vis parseVis(String s) {
         String v = s.toLowerCase();
         return switch (v) {
@@ -58,7 +227,11 @@ public class DelphiInterpreter extends delphiBaseVisitor<Value> {
     private void registerClassMember(ClassDef cd, delphiParser.ClassMemberDeclContext cm, ClassDef.Vis vis) {
         if (cm.fieldDecl() != null) {
             List<String> names = cm.fieldDecl().idList().ID().stream().map(t -> t.getText()).toList();
-            for (String f : names) cd.fields.put(f, vis);
+            String type = typeName(cm.fieldDecl().typeName());
+            for (String f : names) {
+                cd.fields.put(f, vis);
+                cd.fieldTypes.put(f, type);
+            }
             return;
         }
 
@@ -77,7 +250,7 @@ public class DelphiInterpreter extends delphiBaseVisitor<Value> {
         cd.methodVis.put(methodName, vis);
 
         // placeholder (body attached after we parse methodImplSection)
-        cd.methods.putIfAbsent(methodName, new ClassDef.MethodInfo(cd.name, methodName, isFunc, List.of(), null));
+        cd.methods.putIfAbsent(methodName, new ClassDef.MethodInfo(cd.name, methodName, isFunc, List.of(), List.of(), null));
     }
 
     /* ===================== METHOD IMPLEMENTATIONS ===================== */
@@ -96,347 +269,63 @@ public class DelphiInterpreter extends delphiBaseVisitor<Value> {
         String className = h.ID(0).getText();
         String methodName = h.ID(1).getText();
 
-        ClassDef cd = env.classes.get(className);
+        ClassDef cd = program.classes.get(className);
         if (cd == null) throw new RuntimeException("Method implementation for unknown class: " + className);
+        if (cd.isInterface) throw new RuntimeException("Interface methods have no implementation: " + className + "." + methodName);
 
         boolean isFunction = h.FUNCTION() != null;
 
         List<String> paramNames = new ArrayList<>();
+        List<String> paramTypes = new ArrayList<>();
         if (h.formalParams() != null) {
             for (var fp : h.formalParams().formalParam()) {
                 for (var idTok : fp.idList().ID()) {
                     paramNames.add(idTok.getText());
+                    paramTypes.add(paramType(fp.typeName(), className + "." + methodName));
                 }
             }
         }
+        String returnType = isFunction ? paramType(h.typeName(), className + "." + methodName) : null;
 
-        ClassDef.MethodInfo info = new ClassDef.MethodInfo(className, methodName, isFunction, paramNames, mi.block());
+        ClassDef.MethodInfo info = new ClassDef.MethodInfo(className, methodName, isFunction, paramNames, paramTypes, returnType);
         cd.methods.put(methodName, info);
+        pendingBodies.put(info, mi.block());
 
         // Heuristic: constructor named Create, destructor named Destroy (common Delphi)
         if (h.CONSTRUCTOR() != null) cd.constructor = info;
         if (h.DESTRUCTOR() != null) cd.destructor = info;
     }
 
+    // Type names as stored in VarRefs and images: arrays get one canonical spelling (see IntArray.Type)
+    static String typeName(delphiParser.TypeNameContext ctx) {
+        if (ctx.ARRAY() == null) return ctx.getText();
+        if (ctx.bound().isEmpty()) return IntArray.Type.DYNAMIC;
+        int low = Integer.parseInt(ctx.bound(0).getText()), high = Integer.parseInt(ctx.bound(1).getText());
+        if (high < low) throw new RuntimeException("Empty array range: " + ctx.getText());
+        return IntArray.Type.name(low, high);
+    }
+
+    // parameters and results carry arrays by reference, so their bounds are not known here
+    private static String paramType(delphiParser.TypeNameContext ctx, String where) {
+        String type = typeName(ctx);
+        IntArray.Type at = IntArray.Type.of(type);
+        if (at != null && !at.dynamic())
+            throw new RuntimeException("Static array type not allowed for a parameter or result, use array of integer (in " + where + ")");
+        return type;
+    }
+
     /* ===================== VARS ===================== */
 
     @Override
     public Value visitVarSection(delphiParser.VarSectionContext ctx) {
         for (delphiParser.VarDeclContext vd : ctx.varDecl()) {
             List<String> names = vd.idList().ID().stream().map(t -> t.getText()).toList();
-            String type = vd.typeName().getText().toLowerCase();
+            String type = typeName(vd.typeName());
 
             for (String n : names) {
-                if (type.equals("integer")) env.declareVar(n, Value.ofInt(0));
-                else env.declareVar(n, Value.nil()); // object refs start as nil
+                program.declareGlobal(n, type, Program.initialValue(type));
             }
         }
         return Value.nil();
     }
-
-    /* ===================== BLOCK / STATEMENTS ===================== */
-
-    @Override
-    public Value visitBlock(delphiParser.BlockContext ctx) {
-        if (ctx.stmtList() != null) visit(ctx.stmtList());
-        return Value.nil();
-    }
-
-    @Override
-    public Value visitStmtList(delphiParser.StmtListContext ctx) {
-        for (delphiParser.StatementContext s : ctx.statement()) {
-            visit(s);
-            // (Optional) early return: not used in this subset
-            if (env.frame().hasReturn) break;
-        }
-        return Value.nil();
-    }
-
-    @Override
-    public Value visitCompoundStmt(delphiParser.CompoundStmtContext ctx) {
-        if (ctx.stmtList() != null) visit(ctx.stmtList());
-        return Value.nil();
-    }
-
-    @Override
-    public Value visitAssignment(delphiParser.AssignmentContext ctx) {
-        String left = ctx.lvalue().getText();
-        Value rhs = visit(ctx.expr());
-
-        // Function return convention: inside function, "FuncName := expr" sets return value
-        Frame f = env.frame();
-        if (f.currentFunctionName != null && left.equalsIgnoreCase(f.currentFunctionName)) {
-            f.returnValue = rhs;
-            f.hasReturn = true;
-            return Value.nil();
-        }
-
-        if (left.contains(".")) {
-            String[] parts = left.split("\\.");
-            String baseName = parts[0];
-            String field = parts[1];
-
-            Value base = env.getVar(baseName);
-            if (base.kind != Value.Kind.OBJ) throw new RuntimeException("Not an object: " + baseName);
-
-            ObjectInstance obj = base.objVal;
-            enforceFieldVisibility(obj.klass, field);
-
-            if (!obj.fields.containsKey(field))
-                throw new RuntimeException("Unknown field: " + obj.klass.name + "." + field);
-
-            obj.fields.put(field, rhs);
-            return Value.nil();
-        }
-
-        env.setVar(left, rhs);
-        return Value.nil();
-    }
-
-    /* ===================== CALLS ===================== */
-
-    @Override
-    public Value visitBuiltinOrProcCall(delphiParser.BuiltinOrProcCallContext ctx) {
-        String name = ctx.ID().getText().toLowerCase();
-        List<Value> args = evalActualParams(ctx.actualParams());
-
-        if (name.equals("writeln")) {
-            if (args.isEmpty()) { System.out.println(); return Value.nil(); }
-            for (Value v : args) System.out.println(v.kind == Value.Kind.INT ? v.asInt() : v.toString());
-            return Value.nil();
-        }
-
-        if (name.equals("readln")) {
-            if (ctx.actualParams() == null || ctx.actualParams().expr().size() != 1)
-                throw new RuntimeException("readln expects exactly 1 argument");
-
-            // must be simple variable (integer)
-            var e = ctx.actualParams().expr(0);
-            if (!(e instanceof delphiParser.LvalExprContext lv))
-                throw new RuntimeException("readln argument must be a variable");
-
-            String varName = lv.lvalue().getText();
-            if (varName.contains(".")) throw new RuntimeException("readln only supports simple integer vars");
-
-            int x = scanner.nextInt();
-            env.setVar(varName, Value.ofInt(x));
-            return Value.nil();
-        }
-
-        throw new RuntimeException("Unknown procedure: " + name);
-    }
-
-    @Override
-    public Value visitMethodOrStaticCall(delphiParser.MethodOrStaticCallContext ctx) {
-        String left = ctx.ID(0).getText();   // could be className or varName
-        String member = ctx.ID(1).getText(); // method name
-        List<Value> args = evalActualParams(ctx.actualParams());
-
-        // Static call: ClassName.Method(...)
-        if (env.classes.containsKey(left)) {
-            ClassDef cd = env.classes.get(left);
-
-            // Only constructor static call is required: TClass.Create(...)
-            if (cd.constructor == null) {
-                // if they used a different ctor name, still allow "TClass.<CtorName>"
-                var mi = cd.methods.get(member);
-                if (mi != null && isConstructorImpl(mi, cd)) {
-                    return executeConstructor(cd, mi, args);
-                }
-                throw new RuntimeException("No constructor implemented for class: " + cd.name);
-            }
-
-            if (!member.equalsIgnoreCase(cd.constructor.methodName)) {
-                // allow calling the actual declared ctor method name
-                var mi = cd.methods.get(member);
-                if (mi != null && isConstructorImpl(mi, cd)) return executeConstructor(cd, mi, args);
-                throw new RuntimeException("Unsupported static call: " + cd.name + "." + member + " (expected constructor)");
-            }
-
-            return executeConstructor(cd, cd.constructor, args);
-        }
-
-        // Instance call: obj.Method(...)
-        Value recv = env.getVar(left);
-        if (recv.kind != Value.Kind.OBJ) throw new RuntimeException("Not an object: " + left);
-
-        ObjectInstance obj = recv.objVal;
-        ClassDef cd = obj.klass;
-
-        enforceMethodVisibility(cd, member);
-
-        ClassDef.MethodInfo mi = cd.methods.get(member);
-        if (mi == null || mi.body == null) throw new RuntimeException("Method not implemented: " + cd.name + "." + member);
-
-        if (member.equalsIgnoreCase(cd.destructor != null ? cd.destructor.methodName : "Destroy")) {
-            executeDestructor(cd, obj, mi, args);
-            return Value.nil();
-        }
-
-        return executeInstanceMethod(cd, obj, mi, args);
-    }
-
-    private boolean isConstructorImpl(ClassDef.MethodInfo mi, ClassDef cd) {
-        // minimal: treat first attached CONSTRUCTOR as constructor; we already set cd.constructor for CONSTRUCTOR impl.
-        return cd.constructor != null && mi.methodName.equals(cd.constructor.methodName);
-    }
-
-    /* ===================== EXECUTION ENGINE ===================== */
-
-    private Value executeConstructor(ClassDef cd, ClassDef.MethodInfo ctor, List<Value> args) {
-        ObjectInstance obj = new ObjectInstance(cd);
-
-        // Run ctor body with self + params
-        Frame f = new Frame();
-        bindParams(f, ctor.paramNames, args);
-
-        env.pushFrame(f);
-        env.classCtx.push(cd);
-        env.selfCtx.push(obj);
-
-        try {
-            visit(ctor.body);
-        } finally {
-            env.selfCtx.pop();
-            env.classCtx.pop();
-            env.popFrame();
-        }
-
-        return Value.ofObj(obj);
-    }
-
-    private void executeDestructor(ClassDef cd, ObjectInstance obj, ClassDef.MethodInfo dtor, List<Value> args) {
-        Frame f = new Frame();
-        bindParams(f, dtor.paramNames, args);
-
-        env.pushFrame(f);
-        env.classCtx.push(cd);
-        env.selfCtx.push(obj);
-
-        try {
-            visit(dtor.body);
-        } finally {
-            env.selfCtx.pop();
-            env.classCtx.pop();
-            env.popFrame();
-        }
-    }
-
-    private Value executeInstanceMethod(ClassDef cd, ObjectInstance obj, ClassDef.MethodInfo mi, List<Value> args) {
-        Frame f = new Frame();
-        bindParams(f, mi.paramNames, args);
-
-        if (mi.isFunction) {
-            f.currentFunctionName = mi.methodName; // allow "MethodName := expr" return convention
-            f.returnValue = Value.ofInt(0);        // default return
-            f.hasReturn = false;
-        }
-
-        env.pushFrame(f);
-        env.classCtx.push(cd);
-        env.selfCtx.push(obj);
-
-        try {
-            visit(mi.body);
-            if (mi.isFunction) return env.frame().returnValue;
-            return Value.nil();
-        } finally {
-            env.selfCtx.pop();
-            env.classCtx.pop();
-            env.popFrame();
-        }
-    }
-
-    private void bindParams(Frame f, List<String> paramNames, List<Value> args) {
-        if (args.size() != paramNames.size()) {
-            throw new RuntimeException("Argument count mismatch. Expected " + paramNames.size() + " got " + args.size());
-        }
-        for (int i = 0; i < paramNames.size(); i++) {
-            f.vars.put(paramNames.get(i), args.get(i));
-        }
-    }
-
-    /* ===================== EXPRESSIONS ===================== */
-
-    @Override
-    public Value visitIntLit(delphiParser.IntLitContext ctx) {
-        return Value.ofInt(Integer.parseInt(ctx.INT().getText()));
-    }
-
-    @Override
-    public Value visitLvalExpr(delphiParser.LvalExprContext ctx) {
-        String lv = ctx.lvalue().getText();
-
-        if (lv.contains(".")) {
-            String[] parts = lv.split("\\.");
-            String baseName = parts[0];
-            String field = parts[1];
-
-            // support "self.field" by allowing baseName == "self"
-            ObjectInstance obj;
-            if (baseName.equalsIgnoreCase("self")) {
-                obj = env.currentSelf();
-            } else {
-                Value base = env.getVar(baseName);
-                if (base.kind != Value.Kind.OBJ) throw new RuntimeException("Not an object: " + baseName);
-                obj = base.objVal;
-            }
-
-            enforceFieldVisibility(obj.klass, field);
-
-            if (!obj.fields.containsKey(field))
-                throw new RuntimeException("Unknown field: " + obj.klass.name + "." + field);
-
-            return obj.fields.get(field);
-        }
-
-        return env.getVar(lv);
-    }
-
-    @Override
-    public Value visitAddSub(delphiParser.AddSubContext ctx) {
-        int a = visit(ctx.expr(0)).asInt();
-        int b = visit(ctx.expr(1)).asInt();
-        return Value.ofInt(ctx.op.getText().equals("+") ? a + b : a - b);
-    }
-
-    @Override
-    public Value visitMulDiv(delphiParser.MulDivContext ctx) {
-        int a = visit(ctx.expr(0)).asInt();
-        int b = visit(ctx.expr(1)).asInt();
-        if (ctx.op.getText().equals("/")) {
-            if (b == 0) throw new RuntimeException("Division by zero");
-            return Value.ofInt(a / b);
-        }
-        return Value.ofInt(a * b);
-    }
-
-    @Override
-    public Value visitParens(delphiParser.ParensContext ctx) {
-        return visit(ctx.expr());
-    }
-
-    /* ===================== HELPERS ===================== */
-
-    private List<Value> evalActualParams(delphiParser.ActualParamsContext ap) {
-        if (ap == null) return List.of();
-        return ap.expr().stream().map(this::visit).collect(Collectors.toList());
-    }
-
-    private void enforceFieldVisibility(ClassDef cd, String field) {
-        ClassDef.Vis vis = cd.fields.getOrDefault(field, ClassDef.Vis.PUBLIC);
-
-        // Private/protected allowed only within class context in this non-inheritance subset
-        if ((vis == ClassDef.Vis.PRIVATE || vis == ClassDef.Vis.PROTECTED) && !env.inClassContext(cd)) {
-            throw new RuntimeException("Field access denied (" + vis + "): " + cd.name + "." + field);
-        }
-    }
-
-    private void enforceMethodVisibility(ClassDef cd, String method) {
-        ClassDef.Vis vis = cd.methodVis.getOrDefault(method, ClassDef.Vis.PUBLIC);
-
-        if ((vis == ClassDef.Vis.PRIVATE || vis == ClassDef.Vis.PROTECTED) && !env.inClassContext(cd)) {
-            throw new RuntimeException("Method access denied (" + vis + "): " + cd.name + "." + method);
-        }
-    }
 }
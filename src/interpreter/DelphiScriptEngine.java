@@ -0,0 +1,183 @@
+package interpreter;
+
+import javax.script.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * JSR-223 engine. compile() parses and loads once into a Program; each eval of
+ * the resulting CompiledScript runs a fresh Engine, so one compiled script can
+ * be evaluated repeatedly, and from several threads, without re-parsing.
+ *
+ * Before a run, bindings whose names match global vars are copied into the
+ * globals (GLOBAL_SCOPE first, then ENGINE_SCOPE): integers from any integral
+ * Number, object vars only from null (nil). After the run, every integer
+ * global is written back into ENGINE_SCOPE. writeln goes to the context's
+ * Writer and readln reads from its Reader.
+ */
+public final class DelphiScriptEngine extends AbstractScriptEngine implements Compilable {
+
+    private static final int OUTPUT_BUFFER = 1 << 12;
+
+    private final DelphiScriptEngineFactory factory;
+
+    DelphiScriptEngine(DelphiScriptEngineFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return factory;
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return new SimpleBindings();
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext ctx) throws ScriptException {
+        return compile(script).eval(ctx);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext ctx) throws ScriptException {
+        return compile(reader).eval(ctx);
+    }
+
+    @Override
+    public CompiledScript compile(String script) throws ScriptException {
+        try {
+            return new Compiled(this, DelphiInterpreter.loadStrict(script));
+        } catch (RuntimeException ex) {
+            throw scriptException(ex);
+        }
+    }
+
+    @Override
+    public CompiledScript compile(Reader reader) throws ScriptException {
+        StringWriter sw = new StringWriter();
+        try {
+            reader.transferTo(sw);
+        } catch (IOException ex) {
+            throw new ScriptException(ex);
+        }
+        return compile(sw.toString());
+    }
+
+    private static ScriptException scriptException(RuntimeException ex) {
+        ScriptException se = new ScriptException(ex.getMessage());
+        se.initCause(ex);
+        return se;
+    }
+
+    /* ===================== COMPILED SCRIPT ===================== */
+
+    private static final class Compiled extends CompiledScript {
+        private final DelphiScriptEngine owner;
+        private final Program program;
+
+        Compiled(DelphiScriptEngine owner, Program program) {
+            this.owner = owner;
+            this.program = program;
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+            return owner;
+        }
+
+        @Override
+        public Object eval(ScriptContext ctx) throws ScriptException {
+            Engine e = new Engine(program);
+            Bindings engineScope = ctx.getBindings(ScriptContext.ENGINE_SCOPE);
+            bind(e, ctx.getBindings(ScriptContext.GLOBAL_SCOPE));
+            bind(e, engineScope);
+
+            e.setIO(new ConsoleIO(new ReaderInput(ctx.getReader()), new WriterOutput(ctx.getWriter()), OUTPUT_BUFFER, 0));
+            try {
+                e.run();
+            } catch (RuntimeException ex) {
+                throw scriptException(ex);
+            }
+
+            if (engineScope != null) {
+                for (var g : program.globalSlots.entrySet()) {
+                    Value v = e.env.globals[g.getValue()];
+                    if (v.kind == Value.Kind.INT) engineScope.put(g.getKey(), v.asInt());
+                    else if (v.kind == Value.Kind.ARRAY) engineScope.put(g.getKey(), v.arrVal.data.clone());
+                }
+            }
+            return null;
+        }
+
+        private void bind(Engine e, Bindings b) throws ScriptException {
+            if (b == null) return;
+            for (var g : program.globalSlots.entrySet()) {
+                String name = g.getKey();
+                if (!b.containsKey(name)) continue;
+                e.env.globals[g.getValue()] = toValue(name, program.globalTypes.get(name), b.get(name));
+            }
+        }
+
+        private static Value toValue(String name, String type, Object host) throws ScriptException {
+            boolean isInt = "integer".equalsIgnoreCase(type);
+            if (isInt && (host instanceof Integer || host instanceof Long || host instanceof Short || host instanceof Byte))
+                return Value.ofInt(((Number) host).intValue());
+            IntArray.Type at = IntArray.Type.of(type);
+            if (at != null && host instanceof int[] ints && (at.dynamic() || ints.length == at.length()))
+                return Value.ofArray(new IntArray(at.low(), ints.clone()));
+            if (!isInt && (at == null || at.dynamic()) && host == null) return Value.nil();
+
+            String what = host == null ? "null" : host.getClass().getSimpleName();
+            throw new ScriptException("Cannot bind " + what + " to " + type + " variable " + name);
+        }
+    }
+
+    /* ===================== STREAM ADAPTERS (program I/O is ASCII) ===================== */
+
+    private static final class WriterOutput extends OutputStream {
+        private final Writer w;
+
+        WriterOutput(Writer w) {
+            this.w = w;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            w.write(b & 0xff);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            w.write(new String(b, off, len, StandardCharsets.ISO_8859_1));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            w.flush();
+        }
+    }
+
+    private static final class ReaderInput extends InputStream {
+        private final Reader r;
+
+        ReaderInput(Reader r) {
+            this.r = r;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return r == null ? -1 : r.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (r == null) return -1;
+            char[] cs = new char[len];
+            int n = r.read(cs, 0, len);
+            for (int i = 0; i < n; i++) b[off + i] = (byte) cs[i];
+            return n;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package interpreter;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import java.util.List;
+
+// JSR-223 entry point, registered in META-INF/services so ScriptEngineManager finds it by name "delphi".
+public final class DelphiScriptEngineFactory implements ScriptEngineFactory {
+
+    @Override public String getEngineName() { return "delphi-on-pascal"; }
+    @Override public String getEngineVersion() { return "1.0"; }
+    @Override public List<String> getExtensions() { return List.of("pas"); }
+    @Override public List<String> getMimeTypes() { return List.of("text/x-pascal"); }
+    @Override public List<String> getNames() { return List.of("delphi", "pascal"); }
+    @Override public String getLanguageName() { return "Delphi"; }
+    @Override public String getLanguageVersion() { return "subset"; }
+
+    @Override
+    public Object getParameter(String key) {
+        return switch (key) {
+            case ScriptEngine.ENGINE -> getEngineName();
+            case ScriptEngine.ENGINE_VERSION -> getEngineVersion();
+            case ScriptEngine.NAME -> getNames().get(0);
+            case ScriptEngine.LANGUAGE -> getLanguageName();
+            case ScriptEngine.LANGUAGE_VERSION -> getLanguageVersion();
+            // every eval runs in a fresh Engine, but globals are written back into the bindings
+            case "THREADING" -> "THREAD-ISOLATED";
+            default -> null;
+        };
+    }
+
+    @Override
+    public String getMethodCallSyntax(String obj, String m, String... args) {
+        return obj + "." + m + "(" + String.join(", ", args) + ")";
+    }
+
+    @Override
+    public String getOutputStatement(String toDisplay) {
+        return "writeln(" + toDisplay + ")";
+    }
+
+    @Override
+    public String getProgram(String... statements) {
+        StringBuilder sb = new StringBuilder("program Script;\nbegin\n");
+        for (String s : statements) sb.append("  ").append(s).append(";\n");
+        return sb.append("end.\n").toString();
+    }
+
+    @Override
+    public ScriptEngine getScriptEngine() {
+        return new DelphiScriptEngine(this);
+    }
+}
@@ -0,0 +1,409 @@
+package interpreter;
+
+/*
+ * One execution of a loaded Program: runs the linear Code of the main block
+ * and of every interpreted method in a single loop over RuntimeEnv's
+ * activation records, with its own I/O. A call pushes a record and jumps to
+ * the callee's code; a return pops it and resumes the caller, so interpreted
+ * calls never recurse on the Java stack. Only compiled-tier bodies and calls
+ * made through the public callMethod and execute... entry points start a nested
+ * loop, which runs until its own record returns.
+ */
+public final class Engine {
+
+    public final Program program;
+    public final RuntimeEnv env;
+    private ConsoleIO io = new ConsoleIO(System.in, System.out);
+
+    // compiled tier; null = interpret everything
+    private Jit jit = null;
+
+    // null = not profiling
+    private Profiler profiler = null;
+
+    // null = every constructor allocates and Destroy leaves the object to the GC
+    private ObjectPool pool = null;
+
+    // null = no accounting and no limits
+    private Meter meter = null;
+
+    // null = no JFR events and no JMX counters
+    private Telemetry telemetry = null;
+
+    // Compiled-tier bodies now running. They nest on the Java stack, not in env.records, so past
+    // MAX_COMPILED_DEPTH calls are interpreted: deep recursion then grows the heap, never overflows
+    // the thread stack.
+    public static final int MAX_COMPILED_DEPTH = 64;
+    private int compiledDepth = 0;
+
+    public Engine(Program program) {
+        this.program = program;
+        this.env = new RuntimeEnv(program);
+    }
+
+    public void enableJit(Jit jit) {
+        this.jit = jit;
+    }
+
+    public void enableProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public void enablePool(ObjectPool pool) {
+        this.pool = pool;
+    }
+
+    public void enableMeter(Meter meter) {
+        this.meter = meter;
+    }
+
+    public void enableTelemetry(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public void setIO(ConsoleIO io) {
+        this.io = io;
+    }
+
+    public void run() {
+        if (profiler != null) profiler.start();
+        if (telemetry != null) telemetry.start();
+        try {
+            env.depth = 1;
+            CompiledBody cb = jit != null ? jit.mainBody(program) : null;
+            if (cb != null) {
+                cb.run(this, new Value[0], null);
+            } else {
+                env.frame().pc = 0;
+                loop(0);
+            }
+        } finally {
+            // output written before a runtime error must still appear
+            io.flush();
+            if (profiler != null) profiler.stop();
+            if (telemetry != null) telemetry.stop();
+        }
+    }
+
+    /* ===================== INTERPRETER LOOP ===================== */
+
+    // Runs from the top record until the stack is back down to `floor` records (or main returns); returns the result
+    private Value loop(int floor) {
+        RuntimeEnv env = this.env;
+        Profiler prof = profiler;
+        Meter meter = this.meter;
+        Telemetry tel = telemetry;
+        Frame f = env.frame();
+        Code code = f.code;
+        int[] ops = code.ops;
+        Object[] k = code.consts;
+        int pc = f.pc;
+
+        try {
+            while (true) {
+                // one statement per source statement, charged on its first op; spills, jumps and returns are free
+                if (prof != null) prof.statement(code.origin[pc]);
+                if (meter != null && code.origin[pc] != null) meter.statements(1);
+
+                switch (ops[pc++]) {
+                    case Code.EXEC -> ((Ir.Stmt) k[ops[pc++]]).exec(this);
+
+                    case Code.CALL -> {
+                        Code.Call c = (Code.Call) k[ops[pc++]];
+                        int base = f.base + code.frameSize;
+                        evalArgsInto(c.args(), base);
+                        ObjectInstance obj = objectAt(c.receiver());
+                        CallSite.Target t = c.site().targetFor(obj.klass);
+                        ClassDef.MethodInfo mi = t.method();
+                        checkArgs(mi, c.args().length);
+                        if (meter != null) meter.call(env.depth + compiledDepth + 1);
+                        int kind = t.isDestructor() ? Frame.DTOR : Frame.METHOD;
+
+                        CompiledBody cb = jit != null && compiledDepth < MAX_COMPILED_DEPTH ? jit.bodyFor(mi) : null;
+                        if (cb != null) {
+                            Value r = runCompiled(cb, kind, mi, obj, copyArgs(base, c.args().length));
+                            if (c.dest() >= 0) env.slots[f.base + c.dest()] = r;
+                            continue;
+                        }
+
+                        f.pc = pc;
+                        f = env.push(kind, mi, t.cls(), obj, mi.code, base, c.dest());
+                        if (prof != null) prof.enter(mi);
+                        if (tel != null) tel.enter(kind, mi);
+                        code = f.code;
+                        ops = code.ops;
+                        k = code.consts;
+                        pc = 0;
+                    }
+
+                    case Code.NEW -> {
+                        Code.New n = (Code.New) k[ops[pc++]];
+                        int base = f.base + code.frameSize;
+                        evalArgsInto(n.args(), base);
+                        checkArgs(n.ctor(), n.args().length);
+                        if (meter != null) meter.call(env.depth + compiledDepth + 1);
+                        ObjectInstance obj = allocate(n.cls());
+
+                        CompiledBody cb = jit != null && compiledDepth < MAX_COMPILED_DEPTH ? jit.bodyFor(n.ctor()) : null;
+                        if (cb != null) {
+                            Value r = runCompiled(cb, Frame.CTOR, n.ctor(), obj, copyArgs(base, n.args().length));
+                            if (n.dest() >= 0) env.slots[f.base + n.dest()] = r;
+                            continue;
+                        }
+
+                        f.pc = pc;
+                        f = env.push(Frame.CTOR, n.ctor(), n.cls(), obj, n.ctor().code, base, n.dest());
+                        if (prof != null) prof.enter(n.ctor());
+                        if (tel != null) tel.enter(Frame.CTOR, n.ctor());
+                        code = f.code;
+                        ops = code.ops;
+                        k = code.consts;
+                        pc = 0;
+                    }
+
+                    case Code.RETURN_VALUE, Code.RETURN -> {
+                        Value v = ops[pc - 1] == Code.RETURN_VALUE ? ((Ir.Expr) k[ops[pc++]]).eval(this) : null;
+                        if (f.kind == Frame.MAIN) return Value.nil(); // the main record stays for the next run
+                        int dest = f.dest;
+                        v = finish(f, v);
+                        env.pop();
+                        if (env.depth == floor) return v;
+
+                        f = env.frame();
+                        if (dest >= 0) env.slots[f.base + dest] = v;
+                        code = f.code;
+                        ops = code.ops;
+                        k = code.consts;
+                        pc = f.pc;
+                    }
+
+                    case Code.JUMP -> pc = ops[pc];
+
+                    case Code.JUMP_FALSE, Code.JUMP_TRUE -> {
+                        boolean when = ops[pc - 1] == Code.JUMP_TRUE;
+                        boolean cond = ((Ir.Expr) k[ops[pc++]]).evalInt(this) != 0;
+                        pc = cond == when ? ops[pc] : pc + 1;
+                    }
+
+                    case Code.FOR_INIT -> {
+                        Code.ForInit fi = (Code.ForInit) k[ops[pc++]];
+                        Ir.For loop = fi.loop();
+                        int i = fi.from().evalInt(this);
+                        int n = fi.limit().evalInt(this);
+                        if (loop.down ? i < n : i > n) {
+                            pc = ops[pc];
+                            continue;
+                        }
+                        if (meter != null) meter.statements(1); // the first iteration, as in Ir.For
+                        int at = f.base + loop.slot;
+                        env.ints[at] = i;
+                        env.ints[at + 1] = n;
+                        if (loop.sync) env.store(loop.var, Value.ofInt(i));
+                        pc++;
+                    }
+
+                    case Code.FOR_NEXT -> {
+                        Ir.For loop = (Ir.For) k[ops[pc++]];
+                        int at = f.base + loop.slot;
+                        int i = env.ints[at];
+                        if (i != env.ints[at + 1]) {
+                            if (meter != null) meter.statements(1);
+                            i += loop.down ? -1 : 1;
+                            env.ints[at] = i;
+                            if (loop.sync) env.store(loop.var, Value.ofInt(i));
+                            pc = ops[pc];
+                        } else {
+                            if (!loop.sync) env.store(loop.var, Value.ofInt(i));
+                            pc++;
+                        }
+                    }
+
+                    default -> throw new IllegalStateException("Bad opcode " + ops[pc - 1]);
+                }
+            }
+        } catch (RuntimeException | Error ex) {
+            // records above the floor belong to this loop; drop them as the exception leaves
+            while (env.depth > floor && env.frame().kind != Frame.MAIN) {
+                if (prof != null) prof.exit();
+                if (tel != null) tel.exit();
+                env.pop();
+            }
+            throw ex;
+        }
+    }
+
+    // Result of a finished record: constructors yield the object, destructors release it
+    private Value finish(Frame f, Value v) {
+        if (profiler != null) profiler.exit();
+        if (telemetry != null) telemetry.exit();
+        return result(f.kind, f.method, f.self, v);
+    }
+
+    private Value result(int kind, ClassDef.MethodInfo mi, ObjectInstance self, Value v) {
+        switch (kind) {
+            case Frame.CTOR:
+                return Value.ofObj(self);
+            case Frame.DTOR:
+                if (telemetry != null) telemetry.destroyed(self.klass);
+                if (pool != null) pool.release(self);
+                return Value.nil();
+            default:
+                if (v != null) return v;
+                return mi.isFunction ? Value.ofInt(0) : Value.nil();
+        }
+    }
+
+    /* ===================== CALLS (entry points for compiled code and embedders) ===================== */
+
+    public Value callMethod(CallSite site, ObjectInstance obj, Value[] args) {
+        CallSite.Target t = site.targetFor(obj.klass);
+        return invoke(t.isDestructor() ? Frame.DTOR : Frame.METHOD, t.cls(), t.method(), obj, args);
+    }
+
+    public Value executeConstructor(ClassDef cd, ClassDef.MethodInfo ctor, Value[] args) {
+        checkArgs(ctor, args.length);
+        if (meter != null) meter.call(env.depth + compiledDepth + 1);
+        return start(Frame.CTOR, cd, ctor, allocate(cd), args);
+    }
+
+    public void executeDestructor(ClassDef cd, ObjectInstance obj, ClassDef.MethodInfo dtor, Value[] args) {
+        invoke(Frame.DTOR, cd, dtor, obj, args);
+    }
+
+    public Value executeInstanceMethod(ClassDef cd, ObjectInstance obj, ClassDef.MethodInfo mi, Value[] args) {
+        return invoke(Frame.METHOD, cd, mi, obj, args);
+    }
+
+    // args becomes the callee's parameter storage when the body is compiled
+    private Value invoke(int kind, ClassDef cls, ClassDef.MethodInfo mi, ObjectInstance obj, Value[] args) {
+        checkArgs(mi, args.length);
+        if (meter != null) meter.call(env.depth + compiledDepth + 1);
+        return start(kind, cls, mi, obj, args);
+    }
+
+    private Value start(int kind, ClassDef cls, ClassDef.MethodInfo mi, ObjectInstance obj, Value[] args) {
+        CompiledBody cb = jit != null && compiledDepth < MAX_COMPILED_DEPTH ? jit.bodyFor(mi) : null;
+        if (cb != null) return runCompiled(cb, kind, mi, obj, args);
+
+        Frame caller = env.frame();
+        int base = caller.base + caller.code.frameSize;
+        int floor = env.depth;
+        env.push(kind, mi, cls, obj, mi.code, base, -1);
+        System.arraycopy(args, 0, env.slots, base, args.length);
+        if (profiler != null) profiler.enter(mi);
+        if (telemetry != null) telemetry.enter(kind, mi);
+        return loop(floor);
+    }
+
+    private Value runCompiled(CompiledBody cb, int kind, ClassDef.MethodInfo mi, ObjectInstance obj, Value[] locals) {
+        if (profiler != null) profiler.enter(mi);
+        if (telemetry != null) telemetry.enter(kind, mi);
+        Value v;
+        compiledDepth++;
+        try {
+            v = cb.run(this, locals, obj);
+        } finally {
+            compiledDepth--;
+            if (profiler != null) profiler.exit();
+            if (telemetry != null) telemetry.exit();
+        }
+        return result(kind, mi, obj, v);
+    }
+
+    private ObjectInstance allocate(ClassDef cd) {
+        if (meter != null) meter.object(cd);
+        ObjectInstance obj = pool != null ? pool.acquire(cd) : new ObjectInstance(cd);
+        if (profiler != null) profiler.allocated(cd);
+        if (telemetry != null) telemetry.allocated(cd);
+        return obj;
+    }
+
+    private static void checkArgs(ClassDef.MethodInfo mi, int given) {
+        if (given != mi.paramNames.size()) {
+            throw new RuntimeException("Argument count mismatch. Expected " + mi.paramNames.size() + " got " + given);
+        }
+    }
+
+    private void evalArgsInto(Ir.Expr[] args, int base) {
+        env.ensureSlots(base + args.length);
+        for (int i = 0; i < args.length; i++) {
+            Value v = args[i].eval(this); // call-free, so the slot array cannot move meanwhile
+            env.slots[base + i] = v;
+        }
+    }
+
+    private Value[] copyArgs(int base, int n) {
+        Value[] out = new Value[n];
+        System.arraycopy(env.slots, base, out, 0, n);
+        return out;
+    }
+
+    /* ===================== METERING (for natively run loops and compiled code) ===================== */
+
+    public boolean metered() {
+        return meter != null;
+    }
+
+    public void charge(int statements) {
+        Meter m = meter;
+        if (m != null) m.statements(statements);
+    }
+
+    // statements: what the inlined body runs (0 or 1), charged as the real call's body would be.
+    // true, so compiled inline guards can count the call as part of the test
+    public boolean inlinedCall(int statements) {
+        Meter m = meter;
+        if (m != null) {
+            m.inlinedCall();
+            m.statements(statements);
+        }
+        return true;
+    }
+
+    // a new array's length, checked before it is allocated
+    public int arrayCells(int length) {
+        Meter m = meter;
+        if (m != null) m.cells(length);
+        return length;
+    }
+
+    // an array that was just allocated
+    public Value arrayCells(Value array) {
+        Meter m = meter;
+        if (m != null) m.cells(IntArray.length(array));
+        return array;
+    }
+
+    /* ===================== I/O ===================== */
+
+    public void writeln(Value[] args) {
+        if (telemetry != null) telemetry.writeln(io, args);
+        else io.writeln(args);
+    }
+
+    public int readInt() {
+        return telemetry != null ? telemetry.readInt(io) : io.readInt();
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    public Value[] evalArgs(Ir.Expr[] args) {
+        Value[] out = new Value[args.length];
+        for (int i = 0; i < args.length; i++) out[i] = args[i].eval(this);
+        return out;
+    }
+
+    public Value readField(ObjectInstance obj, FieldSite site) {
+        return obj.fields[site.offsetIn(obj.klass)];
+    }
+
+    public void writeField(ObjectInstance obj, FieldSite site, Value v) {
+        obj.fields[site.offsetIn(obj.klass)] = v;
+    }
+
+    public ObjectInstance objectAt(VarRef ref) {
+        Value base = env.load(ref);
+        if (base.kind != Value.Kind.OBJ) throw new RuntimeException("Not an object: " + ref.name);
+        return base.objVal;
+    }
+}
@@ -0,0 +1,57 @@
+package interpreter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/*
+ * Runs many executions of one Program concurrently. Each run gets a fresh
+ * Engine (own RuntimeEnv and ConsoleIO), so runs share nothing mutable except
+ * the Program's inline caches. On Java 21+ every run gets a virtual thread; the
+ * factory is looked up reflectively so the sources still build for Java 17,
+ * where a fixed pool sized to the available processors is used instead.
+ */
+public final class Executions {
+    private Executions() {}
+
+    public static ExecutorService newExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    // Runs `runs` executions on `pool` and waits for all of them; rethrows the first failure
+    public static void runAll(ExecutorService pool, Program program, int runs, Supplier<ConsoleIO> io) throws InterruptedException {
+        List<Future<?>> pending = new ArrayList<>(runs);
+        for (int i = 0; i < runs; i++) {
+            pending.add(pool.submit(() -> {
+                Engine e = new Engine(program);
+                e.setIO(io.get());
+                e.run();
+            }));
+        }
+        for (Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException re) throw re;
+                throw new RuntimeException(ex.getCause());
+            }
+        }
+    }
+
+    // I/O for runs whose output is not wanted
+    public static ConsoleIO discardingIO() {
+        return new ConsoleIO(InputStream.nullInputStream(), OutputStream.nullOutputStream(), 512, 0);
+    }
+}
@@ -0,0 +1,43 @@
+package interpreter;
+
+/*
+ * One "obj.field" access site. The field name is turned into an offset on first
+ * use and cached against the receiver's class, so later hits skip the lookup;
+ * a subclass of that class hits as well, since it has the field at the same
+ * offset.
+ * Visibility depends only on the site's enclosing class and the class that
+ * declared the field, so it is checked when an entry is installed and never on a hit. The
+ * Verifier installs the entry for the declared receiver type before the program
+ * runs, which is where encapsulation errors normally surface.
+ */
+public final class FieldSite {
+    public final String name;
+    public final ClassDef context; // enclosing class of the access; null in the main block
+
+    private record Entry(ClassDef cls, int offset) {}
+
+    // Entry is immutable, so a racing reader sees either null, an old entry or a complete new one
+    private Entry cache = null;
+
+    public FieldSite(String name, ClassDef context) {
+        this.name = name;
+        this.context = context;
+    }
+
+    public int offsetIn(ClassDef cd) {
+        Entry c = cache;
+        // inherited fields keep their offsets, so an entry also fits subclasses of its class
+        if (c != null && (c.cls == cd || cd.isSubclassOf(c.cls))) return c.offset;
+
+        if (cd == ClassDef.DESTROYED) throw new RuntimeException("Use of destroyed object: field " + name);
+        Integer off = cd.fieldIndex.get(name);
+        if (off == null) throw new RuntimeException("Unknown field: " + cd.name + "." + name);
+
+        ClassDef.Vis vis = cd.fieldVis[off];
+        if (!ClassDef.accessible(vis, context, cd.fieldOwners[off]))
+            throw new RuntimeException("Field access denied (" + vis + "): " + cd.name + "." + name);
+
+        cache = new Entry(cd, off);
+        return off;
+    }
+}
@@ -1,17 +1,20 @@
 package interpreter;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/*
+ * One activation record. Records live in RuntimeEnv's record stack and are
+ * reused as calls come and go, so entering a method allocates nothing; the
+ * record's slots are the window [base, base + code.frameSize) of the shared
+ * slot array.
+ */
 public final class Frame {
-    // Variables declared/visible in this scope
-    public final Map<String, Value> vars = new HashMap<>();
-
-    // If executing inside a function, we track its name so "FuncName := expr" becomes return value
-    public String currentFunctionName = null;
-
-    // Current function return value (if any)
-    public Value returnValue = Value.nil();
+    public static final int MAIN = 0, METHOD = 1, CTOR = 2, DTOR = 3;
 
-    public boolean hasReturn = false;
+    public int kind;
+    public ClassDef.MethodInfo method; // null for the main block
+    public ClassDef cls;               // class the call was dispatched on; null for the main block
+    public ObjectInstance self;        // null for the main block
+    public Code code;
+    public int pc;
+    public int base;
+    public int dest;                   // caller's slot for the result, or -1
 }
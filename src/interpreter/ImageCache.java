@@ -0,0 +1,76 @@
+package interpreter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/*
+ * On-disk cache of program images keyed by a hash of the source text (and the
+ * image format version and whether the Optimizer ran), so an unchanged script
+ * is parsed once and loaded from its image afterwards. Entries are written to
+ * a temp file and renamed into place, so concurrent runs never read a partial
+ * image; an unreadable entry is rebuilt from source.
+ */
+public final class ImageCache {
+
+    private final Path dir;
+
+    public ImageCache(Path dir) {
+        this.dir = dir;
+    }
+
+    public static Path defaultDir() {
+        return Path.of(System.getProperty("user.home"), ".cache", "delphi-images");
+    }
+
+    public Program load(byte[] source, PhaseTimes times, boolean optimize) throws IOException {
+        long t = System.nanoTime();
+        Path entry = dir.resolve(key(source, optimize) + ".dpi");
+
+        if (Files.isRegularFile(entry)) {
+            try (InputStream in = Files.newInputStream(entry)) {
+                Program program = ProgramImage.read(in);
+                times.mark("read image", t);
+                return program;
+            } catch (IOException | RuntimeException ex) {
+                // stale or corrupt entry: fall through and rebuild it
+            }
+        }
+
+        Program program = DelphiInterpreter.loadSource(new String(source, StandardCharsets.UTF_8), times, optimize);
+        t = System.nanoTime();
+        store(entry, program);
+        times.mark("write image", t);
+        return program;
+    }
+
+    private void store(Path entry, Program program) throws IOException {
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, "img", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                ProgramImage.write(program, out);
+            }
+            Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static String key(byte[] source, boolean optimize) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update((byte) (ProgramImage.VERSION >> 8));
+            sha.update((byte) ProgramImage.VERSION);
+            sha.update((byte) (optimize ? 1 : 0));
+            return HexFormat.of().formatHex(sha.digest(source));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
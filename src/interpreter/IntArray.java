@@ -0,0 +1,144 @@
+package interpreter;
+
+import java.util.Arrays;
+
+/*
+ * Runtime storage of an integer array: a primitive int[] plus the index of its
+ * first element. Static arrays (array[lo..hi] of integer) are allocated with
+ * their variable or object and never change size; dynamic arrays
+ * (array of integer) start nil, which every operation treats as empty, and are
+ * replaced by a new IntArray on each SetLength. Arrays are passed to methods
+ * by reference and keep their own bounds there.
+ *
+ * The static methods are the array operations of the language, shared by the
+ * interpreter (Ir) and compiled code (Jit).
+ */
+public final class IntArray {
+    public final int low;
+    public final int[] data;
+
+    public IntArray(int low, int[] data) {
+        this.low = low;
+        this.data = data;
+    }
+
+    // Declared array type, parsed from a canonical type name (see DelphiInterpreter.typeName)
+    public record Type(boolean dynamic, int low, int high) {
+        public static final String DYNAMIC = "array of integer";
+
+        // null when typeName is not an array type
+        public static Type of(String typeName) {
+            if (typeName == null || !typeName.startsWith("array")) return null;
+            if (typeName.equals(DYNAMIC)) return new Type(true, 0, -1);
+            int dots = typeName.indexOf("..");
+            int low = Integer.parseInt(typeName.substring(typeName.indexOf('[') + 1, dots));
+            int high = Integer.parseInt(typeName.substring(dots + 2, typeName.indexOf(']')));
+            return new Type(false, low, high);
+        }
+
+        public static String name(int low, int high) {
+            return "array[" + low + ".." + high + "] of integer";
+        }
+
+        public int length() {
+            return high - low + 1;
+        }
+
+        // what a variable of this type holds before it is assigned
+        public Value initial() {
+            return dynamic ? Value.nil() : Value.ofArray(new IntArray(low, new int[length()]));
+        }
+    }
+
+    public IntArray copy() {
+        return new IntArray(low, data.clone());
+    }
+
+    /* ===================== ELEMENTS ===================== */
+
+    // index first: it is evaluated before the array expression
+    public static int load(int index, Value array, String name) {
+        IntArray a = array.asArray();
+        int at = check(a, index, name);
+        return a.data[at];
+    }
+
+    // for indexes the Optimizer proved in range
+    public static int loadUnchecked(int index, Value array) {
+        IntArray a = array.asArray();
+        return a.data[index - a.low];
+    }
+
+    public static void store(int value, int index, Value array, String name) {
+        IntArray a = array.asArray();
+        int at = check(a, index, name);
+        a.data[at] = value;
+    }
+
+    public static void storeUnchecked(int value, int index, Value array) {
+        IntArray a = array.asArray();
+        a.data[index - a.low] = value;
+    }
+
+    private static int check(IntArray a, int index, String name) {
+        int at = a == null ? -1 : index - a.low;
+        if (a == null || at < 0 || at >= a.data.length) {
+            String range = a == null ? "empty" : a.low + ".." + (a.low + a.data.length - 1);
+            throw new RuntimeException("Array index out of bounds: " + name + "[" + index + "] (" + range + ")");
+        }
+        return at;
+    }
+
+    /* ===================== BUILTINS ===================== */
+
+    public static int length(Value array) {
+        IntArray a = array.asArray();
+        return a == null ? 0 : a.data.length;
+    }
+
+    public static int low(Value array) {
+        IntArray a = array.asArray();
+        return a == null ? 0 : a.low;
+    }
+
+    public static int high(Value array) {
+        IntArray a = array.asArray();
+        return a == null ? -1 : a.low + a.data.length - 1;
+    }
+
+    // wraps on overflow, like + does
+    public static int sum(Value array) {
+        IntArray a = array.asArray();
+        if (a == null) return 0;
+        int s = 0;
+        for (int v : a.data) s += v;
+        return s;
+    }
+
+    public static void fill(Value array, int value) {
+        IntArray a = array.asArray();
+        if (a != null) Arrays.fill(a.data, value);
+    }
+
+    // Copy(a): a new dynamic array with all elements
+    public static Value copy(Value array) {
+        IntArray a = array.asArray();
+        return Value.ofArray(new IntArray(0, a == null ? new int[0] : a.data.clone()));
+    }
+
+    // Copy(a, index, count): up to count elements starting at a[index]; like Delphi, clamped to what a holds
+    public static Value copy(Value array, int index, int count) {
+        IntArray a = array.asArray();
+        if (a == null) return Value.ofArray(new IntArray(0, new int[0]));
+        int from = Math.min(Math.max(index - a.low, 0), a.data.length);
+        int to = from + Math.min(Math.max(count, 0), a.data.length - from);
+        return Value.ofArray(new IntArray(0, Arrays.copyOfRange(a.data, from, to)));
+    }
+
+    // SetLength: a new dynamic array keeping the common prefix, new elements 0
+    public static Value resize(Value array, int length) {
+        if (length < 0) throw new RuntimeException("SetLength: negative length " + length);
+        IntArray a = array.asArray();
+        return Value.ofArray(new IntArray(0, a == null ? new int[length] : Arrays.copyOf(a.data, length)));
+    }
+}
@@ -0,0 +1,535 @@
+package interpreter;
+
+import java.util.List;
+
+/*
+ * Executable form of method bodies and the main block, produced by Lowerer.
+ * Names are already resolved to VarRefs, field paths split, operators and
+ * literals decoded, and static calls bound to their constructor. Nothing in
+ * here refers back to the ANTLR parse tree.
+ */
+public final class Ir {
+    private Ir() {}
+
+    public abstract static class Expr {
+        public abstract Value eval(Engine e);
+
+        // Integer-typed evaluation; arithmetic overrides this so intermediate results stay unboxed
+        public int evalInt(Engine e) {
+            return eval(e).asInt();
+        }
+    }
+
+    public abstract static class Stmt {
+        public abstract void exec(Engine e);
+    }
+
+    public enum ArithOp { ADD, SUB, MUL, DIV }
+
+    public enum CompareOp { EQ, NE, LT, LE, GT, GE }
+
+    public enum ArrayFn { LENGTH, LOW, HIGH, SUM, FILL, COPY, RESIZE }
+
+    /* ===================== EXPRESSIONS ===================== */
+
+    public static final class Const extends Expr {
+        public final Value value;
+
+        public Const(Value value) { this.value = value; }
+
+        @Override
+        public Value eval(Engine e) { return value; }
+
+        @Override
+        public int evalInt(Engine e) { return value.asInt(); }
+    }
+
+    public static final class Load extends Expr {
+        public final VarRef ref;
+
+        public Load(VarRef ref) { this.ref = ref; }
+
+        @Override
+        public Value eval(Engine e) { return e.env.load(ref); }
+    }
+
+    public static final class FieldLoad extends Expr {
+        public final VarRef base;
+        public final FieldSite field;
+
+        public FieldLoad(VarRef base, FieldSite field) {
+            this.base = base;
+            this.field = field;
+        }
+
+        @Override
+        public Value eval(Engine e) {
+            return e.readField(e.objectAt(base), field);
+        }
+    }
+
+    public static final class Arith extends Expr {
+        public final ArithOp op;
+        public final Expr left, right;
+
+        public Arith(ArithOp op, Expr left, Expr right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Value eval(Engine e) {
+            return Value.ofInt(evalInt(e));
+        }
+
+        @Override
+        public int evalInt(Engine e) {
+            int a = left.evalInt(e);
+            int b = right.evalInt(e);
+            return switch (op) {
+                case ADD -> a + b;
+                case SUB -> a - b;
+                case MUL -> a * b;
+                case DIV -> {
+                    if (b == 0) throw new RuntimeException("Division by zero");
+                    yield a / b;
+                }
+            };
+        }
+    }
+
+    // Comparisons and the logical operators work on integers: false is 0, true is 1 (any non-zero operand is true)
+    public static final class Compare extends Expr {
+        public final CompareOp op;
+        public final Expr left, right;
+
+        public Compare(CompareOp op, Expr left, Expr right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Value eval(Engine e) {
+            return Value.ofInt(evalInt(e));
+        }
+
+        @Override
+        public int evalInt(Engine e) {
+            int a = left.evalInt(e);
+            int b = right.evalInt(e);
+            boolean r = switch (op) {
+                case EQ -> a == b;
+                case NE -> a != b;
+                case LT -> a < b;
+                case LE -> a <= b;
+                case GT -> a > b;
+                case GE -> a >= b;
+            };
+            return r ? 1 : 0;
+        }
+    }
+
+    // "and"/"or", short-circuit: the right operand is only evaluated when it decides the result
+    public static final class Logic extends Expr {
+        public final boolean and;
+        public final Expr left, right;
+
+        public Logic(boolean and, Expr left, Expr right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Value eval(Engine e) {
+            return Value.ofInt(evalInt(e));
+        }
+
+        @Override
+        public int evalInt(Engine e) {
+            boolean l = left.evalInt(e) != 0;
+            if (l != and) return l ? 1 : 0;
+            return right.evalInt(e) != 0 ? 1 : 0;
+        }
+    }
+
+    public static final class Not extends Expr {
+        public final Expr operand;
+
+        public Not(Expr operand) { this.operand = operand; }
+
+        @Override
+        public Value eval(Engine e) {
+            return Value.ofInt(evalInt(e));
+        }
+
+        @Override
+        public int evalInt(Engine e) {
+            return operand.evalInt(e) == 0 ? 1 : 0;
+        }
+    }
+
+    // The control variable read inside its for loop: the loop's int counter, never boxed
+    public static final class LoopVar extends Expr {
+        public final int slot;   // the enclosing For's slot
+        public final VarRef var; // the variable it stands for
+
+        public LoopVar(int slot, VarRef var) {
+            this.slot = slot;
+            this.var = var;
+        }
+
+        @Override
+        public Value eval(Engine e) {
+            return Value.ofInt(evalInt(e));
+        }
+
+        @Override
+        public int evalInt(Engine e) {
+            RuntimeEnv env = e.env;
+            return env.ints[env.frame().base + slot];
+        }
+    }
+
+    // a[i]. The index is evaluated before the array; `checked` is cleared by the Optimizer when i is provably in range
+    public static final class Index extends Expr {
+        public final Expr array, index;
+        public final boolean checked;
+        public final String name; // for the out-of-bounds message
+
+        public Index(Expr array, Expr index, boolean checked) {
+            this(array, index, checked, nameOf(array));
+        }
+
+        // for rewrites of an existing a[i]: the message keeps naming the array as written in the source
+        public Index(Expr array, Expr index, boolean checked, String name) {
+            this.array = array;
+            this.index = index;
+            this.checked = checked;
+            this.name = name;
+        }
+
+        @Override
+        public Value eval(Engine e) {
+            return Value.ofInt(evalInt(e));
+        }
+
+        @Override
+        public int evalInt(Engine e) {
+            int i = index.evalInt(e);
+            Value a = array.eval(e);
+            return checked ? IntArray.load(i, a, name) : IntArray.loadUnchecked(i, a);
+        }
+    }
+
+    // Length, Low, High, Sum, Fill, Copy and the new array SetLength stores
+    public static final class ArrayCall extends Expr {
+        public final ArrayFn fn;
+        public final Expr[] args; // the array first
+
+        public ArrayCall(ArrayFn fn, Expr[] args) {
+            this.fn = fn;
+            this.args = args;
+        }
+
+        @Override
+        public Value eval(Engine e) {
+            return switch (fn) {
+                case LENGTH, LOW, HIGH, SUM -> Value.ofInt(evalInt(e));
+                case FILL -> {
+                    Value a = args[0].eval(e);
+                    IntArray.fill(a, args[1].evalInt(e));
+                    yield Value.nil();
+                }
+                case COPY -> {
+                    Value a = args[0].eval(e);
+                    if (args.length == 1) yield e.arrayCells(IntArray.copy(a));
+                    int index = args[1].evalInt(e);
+                    yield e.arrayCells(IntArray.copy(a, index, args[2].evalInt(e)));
+                }
+                case RESIZE -> {
+                    Value a = args[0].eval(e);
+                    yield IntArray.resize(a, e.arrayCells(args[1].evalInt(e)));
+                }
+            };
+        }
+
+        @Override
+        public int evalInt(Engine e) {
+            return switch (fn) {
+                case LENGTH -> IntArray.length(args[0].eval(e));
+                case LOW -> IntArray.low(args[0].eval(e));
+                case HIGH -> IntArray.high(args[0].eval(e));
+                case SUM -> IntArray.sum(args[0].eval(e));
+                default -> eval(e).asInt();
+            };
+        }
+    }
+
+    static String nameOf(Expr array) {
+        if (array instanceof Load l) return l.ref.name;
+        if (array instanceof FieldLoad fl) return fl.base.name + "." + fl.field.name;
+        return "array";
+    }
+
+    // TClass.Create(...): class and constructor are fixed at load time
+    public static final class NewObject extends Expr {
+        public final ClassDef cls;
+        public final ClassDef.MethodInfo ctor;
+        public final Expr[] args;
+
+        public NewObject(ClassDef cls, ClassDef.MethodInfo ctor, Expr[] args) {
+            this.cls = cls;
+            this.ctor = ctor;
+            this.args = args;
+        }
+
+        @Override
+        public Value eval(Engine e) {
+            return e.executeConstructor(cls, ctor, e.evalArgs(args));
+        }
+    }
+
+    // obj.Method(...): dispatched on the receiver's class through the site's inline cache
+    public static final class InstanceCall extends Expr {
+        public final VarRef receiver;
+        public final CallSite site;
+        public final Expr[] args;
+
+        public InstanceCall(VarRef receiver, CallSite site, Expr[] args) {
+            this.receiver = receiver;
+            this.site = site;
+            this.args = args;
+        }
+
+        @Override
+        public Value eval(Engine e) {
+            Value[] argv = e.evalArgs(args);
+            return e.callMethod(site, e.objectAt(receiver), argv);
+        }
+    }
+
+    // obj.Method(...) with the body of Method substituted in by the Optimizer. The body only applies
+    // when the receiver's class is the one it was taken from; any other receiver makes the real call.
+    public static final class InlinedCall extends Expr {
+        public final VarRef receiver;
+        public final ClassDef cls;
+        public final CallSite site;  // for the fallback call
+        public final Expr[] args;    // constants and plain loads only, so they can be evaluated in any order
+        public final Stmt effect;    // the inlined statement, or null
+        public final Expr value;     // the result, or null for a procedure
+        public final int statements; // what the callee's body runs (0 or 1), metered when inlined as when called
+
+        public InlinedCall(VarRef receiver, ClassDef cls, CallSite site, Expr[] args, Stmt effect, Expr value, int statements) {
+            this.receiver = receiver;
+            this.cls = cls;
+            this.site = site;
+            this.args = args;
+            this.effect = effect;
+            this.value = value;
+            this.statements = statements;
+        }
+
+        @Override
+        public Value eval(Engine e) {
+            ObjectInstance obj = e.objectAt(receiver);
+            if (obj.klass != cls) return e.callMethod(site, obj, e.evalArgs(args));
+            e.inlinedCall(statements);
+            if (effect != null) effect.exec(e);
+            return value != null ? value.eval(e) : Value.nil();
+        }
+    }
+
+    public static final class Writeln extends Expr {
+        public final Expr[] args;
+
+        public Writeln(Expr[] args) { this.args = args; }
+
+        @Override
+        public Value eval(Engine e) {
+            e.writeln(e.evalArgs(args));
+            return Value.nil();
+        }
+    }
+
+    public static final class Readln extends Expr {
+        public final VarRef target;
+
+        public Readln(VarRef target) { this.target = target; }
+
+        @Override
+        public Value eval(Engine e) {
+            e.env.store(target, Value.ofInt(e.readInt()));
+            return Value.nil();
+        }
+    }
+
+    /* ===================== STATEMENTS ===================== */
+
+    // A natively run loop body. With a Meter attached, each statement is charged before it runs, as Engine.loop
+    // charges the first op of a linearized one, so the count does not depend on how the loop is run.
+    static void loopBody(Stmt s, Engine e) {
+        if (e.metered()) charged(s, e);
+        else s.exec(e);
+    }
+
+    private static void charged(Stmt s, Engine e) {
+        if (s instanceof Block b) {
+            for (Stmt inner : b.body) charged(inner, e);
+        } else {
+            e.charge(1);
+            s.exec(e);
+        }
+    }
+
+    public static final class Block extends Stmt {
+        public final Stmt[] body;
+
+        public Block(List<Stmt> body) { this.body = body.toArray(new Stmt[0]); }
+
+        @Override
+        public void exec(Engine e) {
+            for (Stmt s : body) s.exec(e);
+        }
+    }
+
+    public static final class Assign extends Stmt {
+        public final VarRef target;
+        public final Expr value;
+
+        public Assign(VarRef target, Expr value) {
+            this.target = target;
+            this.value = value;
+        }
+
+        @Override
+        public void exec(Engine e) {
+            e.env.store(target, value.eval(e));
+        }
+    }
+
+    public static final class FieldStore extends Stmt {
+        public final VarRef base;
+        public final FieldSite field;
+        public final Expr value;
+
+        public FieldStore(VarRef base, FieldSite field, Expr value) {
+            this.base = base;
+            this.field = field;
+            this.value = value;
+        }
+
+        @Override
+        public void exec(Engine e) {
+            Value rhs = value.eval(e);
+            e.writeField(e.objectAt(base), field, rhs);
+        }
+    }
+
+    // a[i] := v. Evaluated value, index, then array: the array is a plain variable or field read last
+    public static final class IndexStore extends Stmt {
+        public final Expr array, index, value;
+        public final boolean checked;
+        public final String name;
+
+        public IndexStore(Expr array, Expr index, Expr value, boolean checked) {
+            this(array, index, value, checked, nameOf(array));
+        }
+
+        public IndexStore(Expr array, Expr index, Expr value, boolean checked, String name) {
+            this.array = array;
+            this.index = index;
+            this.value = value;
+            this.checked = checked;
+            this.name = name;
+        }
+
+        @Override
+        public void exec(Engine e) {
+            int v = value.evalInt(e);
+            int i = index.evalInt(e);
+            Value a = array.eval(e);
+            if (checked) IntArray.store(v, i, a, name);
+            else IntArray.storeUnchecked(v, i, a);
+        }
+    }
+
+    public static final class While extends Stmt {
+        public final Expr cond;
+        public final Stmt body;
+
+        public While(Expr cond, Stmt body) {
+            this.cond = cond;
+            this.body = body;
+        }
+
+        // metered as one statement per iteration, on top of the statement itself
+        @Override
+        public void exec(Engine e) {
+            while (cond.evalInt(e) != 0) {
+                e.charge(1);
+                loopBody(body, e);
+            }
+        }
+    }
+
+    /*
+     * for var := from to|downto limit do body. Both bounds are evaluated once, before the first
+     * iteration. The counter is an int kept in the frame's int slot `slot` (the limit in slot + 1
+     * when the loop is linearized). Reads of var in the body are LoopVars, and assigning var there
+     * is rejected at load time. var itself is updated every iteration when the body may call
+     * something that could read it (`sync`), else only once the loop ends. It keeps its last value.
+     */
+    public static final class For extends Stmt {
+        public final VarRef var;
+        public final Expr from, limit;
+        public final boolean down;
+        public final int slot;
+        public final Stmt body;
+        public final boolean sync;
+
+        public For(VarRef var, Expr from, Expr limit, boolean down, int slot, Stmt body, boolean sync) {
+            this.var = var;
+            this.from = from;
+            this.limit = limit;
+            this.down = down;
+            this.slot = slot;
+            this.body = body;
+            this.sync = sync;
+        }
+
+        // metered as one statement per iteration, on top of the statement itself
+        @Override
+        public void exec(Engine e) {
+            int i = from.evalInt(e);
+            int n = limit.evalInt(e);
+            if (down ? i < n : i > n) return;
+
+            RuntimeEnv env = e.env;
+            int at = env.frame().base + slot;
+            int step = down ? -1 : 1;
+            while (true) {
+                env.ints[at] = i; // re-read: a call in the body may grow the array
+                if (sync) env.store(var, Value.ofInt(i));
+                e.charge(1);
+                loopBody(body, e);
+                if (i == n) break;
+                i += step;
+            }
+            if (!sync) env.store(var, Value.ofInt(i));
+        }
+    }
+
+    public static final class ExprStmt extends Stmt {
+        public final Expr expr;
+
+        public ExprStmt(Expr expr) { this.expr = expr; }
+
+        @Override
+        public void exec(Engine e) {
+            expr.eval(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package interpreter;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * Readable listing of a loaded program's Ir (--dump-ir), in Pascal-like
+ * syntax: one block per implemented method, then the main block. It shows the
+ * bodies as they will run, so after the Optimizer folded constants appear as
+ * literals, inlined calls as
+ *   inline[TClass] recv.Method(args) { effect; => value }
+ * and array accesses without a bounds check as a[i unchecked].
+ */
+public final class IrPrinter {
+    private IrPrinter() {}
+
+    public static void print(Program program, PrintStream out) {
+        List<ClassDef> classes = program.classes.values().stream().sorted(Comparator.comparing(cd -> cd.name)).toList();
+        for (ClassDef cd : classes) {
+            List<ClassDef.MethodInfo> methods = cd.methods.values().stream()
+                    .filter(mi -> mi.body != null)
+                    .sorted(Comparator.comparing(mi -> mi.methodName))
+                    .toList();
+            for (ClassDef.MethodInfo mi : methods) {
+                out.println(header(cd, mi));
+                block(mi.body, out);
+                out.println();
+            }
+        }
+        out.println("main");
+        block(program.main, out);
+    }
+
+    private static String header(ClassDef cd, ClassDef.MethodInfo mi) {
+        String kind = mi == cd.constructor ? "constructor" : mi == cd.destructor ? "destructor" : mi.isFunction ? "function" : "procedure";
+        StringBuilder sb = new StringBuilder(kind).append(' ').append(cd.name).append('.').append(mi.methodName).append('(');
+        for (int i = 0; i < mi.paramNames.size(); i++) {
+            if (i > 0) sb.append("; ");
+            sb.append(mi.paramNames.get(i)).append(": ").append(mi.paramTypes.get(i));
+        }
+        sb.append(')');
+        if (mi.returnType != null) sb.append(": ").append(mi.returnType);
+        return sb.toString();
+    }
+
+    private static void block(Ir.Stmt body, PrintStream out) {
+        out.println("begin");
+        stmt(body, "  ", out);
+        out.println("end");
+    }
+
+    private static void stmt(Ir.Stmt s, String ind, PrintStream out) {
+        if (s instanceof Ir.Block b) {
+            for (Ir.Stmt inner : b.body) stmt(inner, ind, out);
+        } else if (s instanceof Ir.While w) {
+            out.println(ind + "while " + expr(w.cond) + " do");
+            loopBody(w.body, ind, out);
+        } else if (s instanceof Ir.For f) {
+            out.println(ind + "for " + f.var.name + " := " + expr(f.from) + (f.down ? " downto " : " to ") + expr(f.limit) + " do");
+            loopBody(f.body, ind, out);
+        } else {
+            out.println(ind + stmt(s));
+        }
+    }
+
+    private static void loopBody(Ir.Stmt body, String ind, PrintStream out) {
+        out.println(ind + "begin");
+        stmt(body, ind + "  ", out);
+        out.println(ind + "end");
+    }
+
+    /* ===================== TEXT ===================== */
+
+    private static String stmt(Ir.Stmt s) {
+        if (s instanceof Ir.Assign a) return a.target.name + " := " + expr(a.value);
+        if (s instanceof Ir.FieldStore fs) return fs.base.name + "." + fs.field.name + " := " + expr(fs.value);
+        if (s instanceof Ir.IndexStore is) return element(is.array, is.index, is.checked) + " := " + expr(is.value);
+        if (s instanceof Ir.ExprStmt es) return expr(es.expr);
+        if (s instanceof Ir.Block b) {
+            return "begin " + Arrays.stream(b.body).map(IrPrinter::stmt).collect(Collectors.joining("; ")) + " end";
+        }
+        return s.getClass().getSimpleName();
+    }
+
+    private static String expr(Ir.Expr x) {
+        if (x instanceof Ir.Const c) return c.value.toString();
+        if (x instanceof Ir.Load l) return l.ref.name;
+        if (x instanceof Ir.FieldLoad fl) return fl.base.name + "." + fl.field.name;
+        if (x instanceof Ir.Arith a) {
+            String op = switch (a.op) {
+                case ADD -> " + ";
+                case SUB -> " - ";
+                case MUL -> " * ";
+                case DIV -> " / ";
+            };
+            return "(" + expr(a.left) + op + expr(a.right) + ")";
+        }
+        if (x instanceof Ir.Compare c) {
+            String op = switch (c.op) {
+                case EQ -> " = ";
+                case NE -> " <> ";
+                case LT -> " < ";
+                case LE -> " <= ";
+                case GT -> " > ";
+                case GE -> " >= ";
+            };
+            return "(" + expr(c.left) + op + expr(c.right) + ")";
+        }
+        if (x instanceof Ir.Logic l) return "(" + expr(l.left) + (l.and ? " and " : " or ") + expr(l.right) + ")";
+        if (x instanceof Ir.Not n) return "not " + expr(n.operand);
+        if (x instanceof Ir.LoopVar lv) return lv.var.name;
+        if (x instanceof Ir.Index ix) return element(ix.array, ix.index, ix.checked);
+        if (x instanceof Ir.ArrayCall c) {
+            String fn = c.fn.name().charAt(0) + c.fn.name().substring(1).toLowerCase();
+            return fn + args(c.args);
+        }
+        if (x instanceof Ir.NewObject n) return n.cls.name + "." + n.ctor.methodName + args(n.args);
+        if (x instanceof Ir.InstanceCall c) return c.receiver.name + "." + c.site.method + args(c.args);
+        if (x instanceof Ir.InlinedCall c) {
+            StringBuilder sb = new StringBuilder("inline[").append(c.cls.name).append("] ")
+                    .append(c.receiver.name).append('.').append(c.site.method).append(args(c.args)).append(" {");
+            if (c.effect != null) sb.append(' ').append(stmt(c.effect)).append(';');
+            if (c.value != null) sb.append(" => ").append(expr(c.value));
+            return sb.append(" }").toString();
+        }
+        if (x instanceof Ir.Writeln w) return "writeln" + args(w.args);
+        if (x instanceof Ir.Readln r) return "readln(" + r.target.name + ")";
+        return x.getClass().getSimpleName();
+    }
+
+    // the array as it is evaluated, which after inlining can differ from the name in error messages
+    private static String element(Ir.Expr array, Ir.Expr index, boolean checked) {
+        return expr(array) + "[" + expr(index) + (checked ? "]" : " unchecked]");
+    }
+
+    private static String args(Ir.Expr[] xs) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < xs.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(expr(xs[i]));
+        }
+        return sb.append(')').toString();
+    }
+}
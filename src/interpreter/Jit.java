@@ -0,0 +1,490 @@
+package interpreter;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Optional compiled tier. Once a method has been invoked `threshold` times its
+ * lowered body is queued for translation to Java source, which a background
+ * thread compiles in memory with the platform compiler and loads through a
+ * private class loader, so HotSpot can JIT it like any other Java method. The
+ * interpreter keeps running the method until the compiled body is installed.
+ * Integer expressions become primitive int arithmetic, loops become Java loops
+ * with the for counter in an int local, and fields of self become direct
+ * ObjectInstance slot accesses; everything else calls back into the Engine so
+ * semantics (errors, visibility, dispatch) stay identical to the interpreter.
+ *
+ * In eager mode (threshold 1) the main block and every method are compiled
+ * together in one javac task before the run starts, and the result is kept on
+ * the Program, so later runs of the same Program start compiled.
+ *
+ * A body the translator cannot handle, or that fails to compile, stays on the
+ * interpreter for the rest of the run. Without a system Java compiler (plain
+ * JRE) the tier is inactive; reportUnavailable says so once per JVM.
+ */
+public final class Jit {
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    private static final String PACKAGE = "delphijit";
+    private static final JavaCompiler JAVAC = ToolProvider.getSystemJavaCompiler();
+    private static final AtomicBoolean REPORTED = new AtomicBoolean();
+
+    // one daemon thread for all Jits: compiles are queued, never run on an interpreter thread
+    private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "delphi-jit");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final int threshold;
+    private final JitClassLoader loader = new JitClassLoader(Jit.class.getClassLoader());
+    private int classCounter = 0;
+
+    public Jit(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public static boolean available() {
+        return JAVAC != null;
+    }
+
+    // Tells the user, the first time only, that --jit has no effect in this JVM
+    public static void reportUnavailable(PrintStream err) {
+        if (!available() && !REPORTED.getAndSet(true)) {
+            err.println("warning: --jit ignored: no system Java compiler (running on a JRE?)");
+        }
+    }
+
+    // Counts an invocation of mi; returns its compiled body once it is installed, else null
+    public CompiledBody bodyFor(ClassDef.MethodInfo mi) {
+        CompiledBody cb = mi.compiled;
+        if (cb != null) return cb;
+        if (mi.jitFailed || mi.jitQueued || ++mi.invocations < threshold) return null;
+        queue(mi);
+        return null;
+    }
+
+    private synchronized void queue(ClassDef.MethodInfo mi) {
+        if (mi.jitQueued || JAVAC == null) return;
+        mi.jitQueued = true;
+        BACKGROUND.execute(() -> {
+            CompiledBody cb = compile(Map.of(mi.className + "_" + mi.methodName, mi.body)).get(0);
+            if (cb == null) mi.jitFailed = true;
+            else mi.compiled = cb;
+        });
+    }
+
+    // The main block runs exactly once, so it is only compiled in eager mode, together with every method
+    public CompiledBody mainBody(Program program) {
+        if (threshold > 1 || JAVAC == null) return null;
+        synchronized (program) {
+            if (!program.jitDone) compileAll(program);
+            return program.compiledMain;
+        }
+    }
+
+    private void compileAll(Program program) {
+        List<ClassDef.MethodInfo> methods = new ArrayList<>();
+        Map<String, Ir.Stmt> bodies = new LinkedHashMap<>();
+        bodies.put("main", program.main);
+        Set<ClassDef.MethodInfo> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ClassDef cd : program.classes.values()) {
+            for (ClassDef.MethodInfo mi : cd.methods.values()) {
+                if (mi.body == null || mi.compiled != null || mi.jitFailed || !seen.add(mi)) continue;
+                methods.add(mi);
+                bodies.put(mi.className + "_" + mi.methodName, mi.body);
+            }
+        }
+
+        List<CompiledBody> compiled = compile(bodies);
+        program.compiledMain = compiled.get(0);
+        for (int i = 0; i < methods.size(); i++) {
+            CompiledBody cb = compiled.get(i + 1);
+            if (cb == null) methods.get(i).jitFailed = true;
+            else methods.get(i).compiled = cb;
+        }
+        program.jitDone = true;
+    }
+
+    // Compiles the bodies (label -> body) in one javac task; the result is parallel to the map, null where a body stays interpreted
+    private List<CompiledBody> compile(Map<String, Ir.Stmt> bodies) {
+        synchronized (loader) {
+            return compileLocked(bodies);
+        }
+    }
+
+    private List<CompiledBody> compileLocked(Map<String, Ir.Stmt> bodies) {
+        List<CompiledBody> result = new ArrayList<>();
+        List<Codegen> gens = new ArrayList<>();
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (Map.Entry<String, Ir.Stmt> b : bodies.entrySet()) {
+            String className = PACKAGE + ".M" + (classCounter++) + "_" + b.getKey();
+            Codegen cg = new Codegen();
+            try {
+                sources.put(className, cg.emitClass(className.substring(PACKAGE.length() + 1), b.getValue()));
+                gens.add(cg);
+            } catch (Unsupported ex) {
+                gens.add(null);
+            }
+            result.add(null);
+        }
+
+        // one bad class fails the whole task: retry one at a time so the others still compile
+        Map<String, Class<?>> classes = loader.compile(JAVAC, sources);
+        if (classes == null) {
+            classes = new HashMap<>();
+            for (Map.Entry<String, String> src : sources.entrySet()) {
+                Map<String, Class<?>> one = loader.compile(JAVAC, Map.of(src.getKey(), src.getValue()));
+                if (one != null) classes.putAll(one);
+            }
+        }
+
+        Iterator<String> names = sources.keySet().iterator();
+        for (int i = 0; i < gens.size(); i++) {
+            Codegen cg = gens.get(i);
+            if (cg == null) continue;
+            Class<?> c = classes.get(names.next());
+            if (c == null) continue;
+            try {
+                result.set(i, (CompiledBody) c.getConstructor(Object[].class).newInstance((Object) cg.consts.toArray()));
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                // stays interpreted
+            }
+        }
+        return result;
+    }
+
+    /* ===================== RUNTIME SUPPORT (called from generated code) ===================== */
+
+    public static int div(int a, int b) {
+        if (b == 0) throw new RuntimeException("Division by zero");
+        return a / b;
+    }
+
+    public static ObjectInstance obj(Value v, String name) {
+        if (v.kind != Value.Kind.OBJ) throw new RuntimeException("Not an object: " + name);
+        return v.objVal;
+    }
+
+    // args come first so they are evaluated before the receiver, as in Ir.InstanceCall
+    public static Value invoke(Engine e, Value[] args, Value recv, String recvName, CallSite site) {
+        return e.callMethod(site, obj(recv, recvName), args);
+    }
+
+    /* ===================== CODE GENERATION ===================== */
+
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported(String what) { super(what, null, false, false); }
+    }
+
+    private static final class Codegen {
+        final List<Object> consts = new ArrayList<>();
+        private final List<String> constTypes = new ArrayList<>();
+        private final StringBuilder body = new StringBuilder();
+        private int temps = 0;
+        private int locals = 0; // frame slots used: params, and slots the Optimizer gave scalar-replaced objects
+
+        String emitClass(String simpleName, Ir.Stmt root) {
+            stmt(root, "        ");
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("package ").append(PACKAGE).append(";\n");
+            sb.append("import interpreter.*;\n");
+            sb.append("public final class ").append(simpleName).append(" implements CompiledBody {\n");
+            for (int i = 0; i < consts.size(); i++) {
+                sb.append("    private final ").append(constTypes.get(i)).append(" k").append(i).append(";\n");
+            }
+            sb.append("    public ").append(simpleName).append("(Object[] k) {\n");
+            for (int i = 0; i < consts.size(); i++) {
+                sb.append("        k").append(i).append(" = (").append(constTypes.get(i)).append(") k[").append(i).append("];\n");
+            }
+            sb.append("    }\n");
+            sb.append("    public Value run(Engine e, Value[] l, ObjectInstance self) {\n");
+            if (locals > 0) sb.append("        if (l.length < ").append(locals).append(") l = java.util.Arrays.copyOf(l, ").append(locals).append(");\n");
+            sb.append(body);
+            sb.append("        return null;\n");
+            sb.append("    }\n");
+            sb.append("}\n");
+            return sb.toString();
+        }
+
+        private String konst(Object value, String type) {
+            consts.add(value);
+            constTypes.add(type);
+            return "k" + (consts.size() - 1);
+        }
+
+        private static String str(String s) {
+            // names are identifiers, so no escaping is needed
+            return "\"" + s + "\"";
+        }
+
+        /* ----- statements ----- */
+
+        // metered like the interpreter: one statement charged before each statement runs
+        private void stmt(Ir.Stmt s, String ind) {
+            if (s instanceof Ir.Block b) {
+                for (Ir.Stmt inner : b.body) stmt(inner, ind);
+            } else {
+                line(ind, "e.charge(1);");
+                uncharged(s, ind);
+            }
+        }
+
+        private void uncharged(Ir.Stmt s, String ind) {
+            if (s instanceof Ir.Assign a) {
+                store(a.target, value(a.value), ind);
+            } else if (s instanceof Ir.FieldStore fs) {
+                String t = "t" + (temps++);
+                line(ind, "Value " + t + " = " + value(fs.value) + ";");
+                line(ind, "e.writeField(Jit.obj(" + load(fs.base) + ", " + str(fs.base.name) + "), " + konst(fs.field, "FieldSite") + ", " + t + ");");
+            } else if (s instanceof Ir.ExprStmt es) {
+                exprStmt(es.expr, ind);
+            } else if (s instanceof Ir.IndexStore is) {
+                String at = intExpr(is.value) + ", " + intExpr(is.index) + ", " + value(is.array);
+                line(ind, is.checked ? "IntArray.store(" + at + ", " + str(is.name) + ");" : "IntArray.storeUnchecked(" + at + ");");
+            } else if (s instanceof Ir.While w) {
+                line(ind, "while (" + cond(w.cond) + ") {");
+                line(ind + "    ", "e.charge(1);");
+                stmt(w.body, ind + "    ");
+                line(ind, "}");
+            } else if (s instanceof Ir.For f) {
+                forLoop(f, ind);
+            } else {
+                throw new Unsupported(s.getClass().getSimpleName());
+            }
+        }
+
+        // as in Ir.For.exec; the braces scope the counter so later loops can reuse the slot's name
+        private void forLoop(Ir.For f, String ind) {
+            String i = "i" + f.slot, n = "n" + f.slot, in = ind + "        ";
+            line(ind, "{");
+            line(ind + "    ", "int " + i + " = " + intExpr(f.from) + ";");
+            line(ind + "    ", "int " + n + " = " + intExpr(f.limit) + ";");
+            line(ind + "    ", "if (" + i + (f.down ? " >= " : " <= ") + n + ") {");
+            line(ind + "        ", "while (true) {");
+            if (f.sync) store(f.var, "Value.ofInt(" + i + ")", in + "    ");
+            line(in + "    ", "e.charge(1);");
+            stmt(f.body, in + "    ");
+            line(in + "    ", "if (" + i + " == " + n + ") break;");
+            line(in + "    ", i + (f.down ? "--;" : "++;"));
+            line(in, "}");
+            if (!f.sync) store(f.var, "Value.ofInt(" + i + ")", in);
+            line(ind + "    ", "}");
+            line(ind, "}");
+        }
+
+        private void exprStmt(Ir.Expr x, String ind) {
+            if (x instanceof Ir.Writeln w) {
+                line(ind, "e.writeln(" + args(w.args) + ");");
+            } else if (x instanceof Ir.Readln r) {
+                store(r.target, "Value.ofInt(e.readInt())", ind);
+            } else if (x instanceof Ir.NewObject || x instanceof Ir.InstanceCall) {
+                line(ind, value(x) + ";");
+            } else if (x instanceof Ir.ArrayCall c && c.fn == Ir.ArrayFn.FILL) {
+                line(ind, "IntArray.fill(" + value(c.args[0]) + ", " + intExpr(c.args[1]) + ");");
+            } else if (x instanceof Ir.InlinedCall c) {
+                line(ind, "if (" + guard(c) + ") {");
+                if (c.effect != null) uncharged(c.effect, ind + "    "); // charged by the guard
+                if (c.value != null) line(ind + "    ", "Value t" + (temps++) + " = " + value(c.value) + ";");
+                line(ind, "} else {");
+                line(ind + "    ", fallback(c) + ";");
+                line(ind, "}");
+            } else {
+                value(x); // no side effects; still validates the subtree
+            }
+        }
+
+        private void store(VarRef r, String v, String ind) {
+            switch (r.kind) {
+                case LOCAL -> {
+                    locals = Math.max(locals, r.slot + 1);
+                    line(ind, "l[" + r.slot + "] = " + v + ";");
+                }
+                case GLOBAL -> line(ind, "e.env.globals[" + r.slot + "] = " + v + ";");
+                case FIELD -> line(ind, "self.fields[" + r.slot + "] = " + v + ";");
+                // "FuncName := expr" ends the body; `if (true)` keeps javac from rejecting what follows as unreachable
+                case RESULT -> line(ind, "if (true) return " + v + ";");
+                case SELF -> throw new Unsupported("store to self");
+            }
+        }
+
+        private void line(String ind, String code) {
+            body.append(ind).append(code).append('\n');
+        }
+
+        /* ----- expressions ----- */
+
+        private String load(VarRef r) {
+            return switch (r.kind) {
+                case LOCAL -> "l[" + r.slot + "]";
+                case GLOBAL -> "e.env.globals[" + r.slot + "]";
+                case FIELD -> "self.fields[" + r.slot + "]";
+                case SELF -> "Value.ofObj(self)";
+                case RESULT -> "Value.ofInt(0)"; // as in RuntimeEnv.load
+            };
+        }
+
+        // Java expression of type Value
+        private String value(Ir.Expr x) {
+            if (x instanceof Ir.Const c) return konst(c.value, "Value");
+            if (x instanceof Ir.Load l) return load(l.ref);
+            if (x instanceof Ir.Arith || x instanceof Ir.Compare || x instanceof Ir.Logic || x instanceof Ir.Not || x instanceof Ir.LoopVar
+                    || x instanceof Ir.Index)
+                return "Value.ofInt(" + intExpr(x) + ")";
+            if (x instanceof Ir.ArrayCall c) {
+                return switch (c.fn) {
+                    case LENGTH, LOW, HIGH, SUM -> "Value.ofInt(" + intExpr(x) + ")";
+                    case COPY -> "e.arrayCells(IntArray.copy(" + value(c.args[0]) + (c.args.length == 3 ? ", " + intExpr(c.args[1]) + ", " + intExpr(c.args[2]) : "") + "))";
+                    case RESIZE -> "IntArray.resize(" + value(c.args[0]) + ", e.arrayCells(" + intExpr(c.args[1]) + "))";
+                    case FILL -> throw new Unsupported("Fill as a value");
+                };
+            }
+            if (x instanceof Ir.FieldLoad fl)
+                return "e.readField(Jit.obj(" + load(fl.base) + ", " + str(fl.base.name) + "), " + konst(fl.field, "FieldSite") + ")";
+            if (x instanceof Ir.NewObject n)
+                return "e.executeConstructor(" + konst(n.cls, "ClassDef") + ", " + konst(n.ctor, "ClassDef.MethodInfo") + ", " + args(n.args) + ")";
+            if (x instanceof Ir.InstanceCall c)
+                return "Jit.invoke(e, " + args(c.args) + ", " + load(c.receiver) + ", " + str(c.receiver.name) + ", " + konst(c.site, "CallSite") + ")";
+            if (x instanceof Ir.InlinedCall c && c.effect == null)
+                return "(" + guard(c) + " ? " + (c.value != null ? value(c.value) : "Value.nil()") + " : " + fallback(c) + ")";
+            throw new Unsupported(x.getClass().getSimpleName());
+        }
+
+        // as in Ir.InlinedCall: the inlined body only applies to receivers of the class it came from
+        private String guard(Ir.InlinedCall c) {
+            return "Jit.obj(" + load(c.receiver) + ", " + str(c.receiver.name) + ").klass == " + konst(c.cls, "ClassDef") + " && e.inlinedCall(" + c.statements + ")";
+        }
+
+        private String fallback(Ir.InlinedCall c) {
+            return "Jit.invoke(e, " + args(c.args) + ", " + load(c.receiver) + ", " + str(c.receiver.name) + ", " + konst(c.site, "CallSite") + ")";
+        }
+
+        // Java expression of type int
+        private String intExpr(Ir.Expr x) {
+            if (x instanceof Ir.Const c && c.value.kind == Value.Kind.INT) return Integer.toString(c.value.asInt());
+            if (x instanceof Ir.Arith a) {
+                String l = intExpr(a.left), r = intExpr(a.right);
+                return switch (a.op) {
+                    case ADD -> "(" + l + " + " + r + ")";
+                    case SUB -> "(" + l + " - " + r + ")";
+                    case MUL -> "(" + l + " * " + r + ")";
+                    case DIV -> "Jit.div(" + l + ", " + r + ")";
+                };
+            }
+            if (x instanceof Ir.Compare || x instanceof Ir.Logic || x instanceof Ir.Not) return "(" + cond(x) + " ? 1 : 0)";
+            if (x instanceof Ir.LoopVar lv) return "i" + lv.slot;
+            if (x instanceof Ir.Index ix) {
+                String at = intExpr(ix.index) + ", " + value(ix.array);
+                return ix.checked ? "IntArray.load(" + at + ", " + str(ix.name) + ")" : "IntArray.loadUnchecked(" + at + ")";
+            }
+            if (x instanceof Ir.ArrayCall c && c.fn != Ir.ArrayFn.COPY && c.fn != Ir.ArrayFn.RESIZE && c.fn != Ir.ArrayFn.FILL)
+                return "IntArray." + c.fn.name().toLowerCase() + "(" + value(c.args[0]) + ")";
+            return value(x) + ".asInt()";
+        }
+
+        // Java expression of type boolean: whether x is non-zero
+        private String cond(Ir.Expr x) {
+            if (x instanceof Ir.Compare c) {
+                String op = switch (c.op) {
+                    case EQ -> " == ";
+                    case NE -> " != ";
+                    case LT -> " < ";
+                    case LE -> " <= ";
+                    case GT -> " > ";
+                    case GE -> " >= ";
+                };
+                return "(" + intExpr(c.left) + op + intExpr(c.right) + ")";
+            }
+            if (x instanceof Ir.Logic l) return "(" + cond(l.left) + (l.and ? " && " : " || ") + cond(l.right) + ")";
+            if (x instanceof Ir.Not n) return "!" + cond(n.operand);
+            return "(" + intExpr(x) + " != 0)";
+        }
+
+        private String args(Ir.Expr[] xs) {
+            StringBuilder sb = new StringBuilder("new Value[]{");
+            for (int i = 0; i < xs.length; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(value(xs[i]));
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    /* ===================== IN-MEMORY COMPILATION ===================== */
+
+    private static final class JitClassLoader extends ClassLoader {
+        private final Map<String, ByteArrayOutputStream> output = new HashMap<>();
+
+        JitClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        // Compiles className -> source in one task; null if javac rejects any of them
+        Map<String, Class<?>> compile(JavaCompiler javac, Map<String, String> sources) {
+            if (sources.isEmpty()) return new HashMap<>();
+            DiagnosticCollector<JavaFileObject> diags = new DiagnosticCollector<>();
+            StandardJavaFileManager std = javac.getStandardFileManager(diags, null, null);
+
+            JavaFileManager fm = new ForwardingJavaFileManager<>(std) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location loc, String name, JavaFileObject.Kind kind, FileObject sibling) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    output.put(name, bytes);
+                    return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension), kind) {
+                        @Override
+                        public OutputStream openOutputStream() { return bytes; }
+                    };
+                }
+            };
+
+            List<JavaFileObject> units = new ArrayList<>();
+            for (Map.Entry<String, String> s : sources.entrySet()) {
+                String src = s.getValue();
+                units.add(new SimpleJavaFileObject(
+                        URI.create("string:///" + s.getKey().replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+                    @Override
+                    public CharSequence getCharContent(boolean ignoreEncodingErrors) { return src; }
+                });
+            }
+
+            List<String> opts = List.of("-classpath", classPath(), "-g:none", "-nowarn", "-proc:none");
+            Boolean ok = javac.getTask(null, fm, diags, opts, null, units).call();
+            if (!Boolean.TRUE.equals(ok)) {
+                output.clear();
+                return null;
+            }
+
+            Map<String, Class<?>> classes = new HashMap<>();
+            for (String className : sources.keySet()) {
+                ByteArrayOutputStream bytes = output.remove(className);
+                if (bytes == null) continue;
+                byte[] b = bytes.toByteArray();
+                classes.put(className, defineClass(className, b, 0, b.length));
+            }
+            return classes;
+        }
+
+        // the interpreter classes may come from somewhere other than java.class.path (e.g. when embedded)
+        private static String classPath() {
+            String cp = System.getProperty("java.class.path", "");
+            try {
+                var src = Engine.class.getProtectionDomain().getCodeSource();
+                if (src != null) cp = new File(src.getLocation().toURI()).getPath() + File.pathSeparator + cp;
+            } catch (Exception ignored) {
+                // fall back to the JVM class path
+            }
+            return cp;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Turns a verified Ir body into Code. Calls are pulled out of expressions into
+ * CALL/NEW instructions whose results land in temporaries (slots after the
+ * params and loop counters); what is left of each statement is call-free and
+ * runs as one EXEC. "FuncName := expr" becomes RETURN_VALUE, since it always
+ * ends the body. Loops that contain calls or a return become jumps; the
+ * others run as a single EXEC.
+ *
+ * Source evaluation order is kept: when an operand or argument is followed by
+ * one that contains a call, it is computed into a temporary before that call
+ * unless the call cannot change it (constants, params and temporaries, which
+ * live in this frame).
+ */
+final class Linearizer {
+
+    private int[] ops = new int[16];
+    private int len = 0;
+    private final List<Object> consts = new ArrayList<>();
+    private final List<Ir.Stmt> origin = new ArrayList<>();
+
+    private final int params; // params and loop counters; temporaries start here
+    private int nextTemp, maxSlots;
+
+    private Linearizer(int params) {
+        this.params = params;
+        this.nextTemp = params;
+        this.maxSlots = params;
+    }
+
+    static Code linearize(Ir.Stmt body, int params) {
+        Linearizer l = new Linearizer(frameSlots(body, params));
+        l.stmt(body);
+        l.emit(Code.RETURN, null, null);
+        return new Code(Arrays.copyOf(l.ops, l.len), l.consts.toArray(), l.originArray(), l.maxSlots);
+    }
+
+    /* ===================== STATEMENTS ===================== */
+
+    private Ir.Stmt current; // statement being linearized, recorded on its first instruction
+
+    private void stmt(Ir.Stmt s) {
+        if (s instanceof Ir.Block b) {
+            for (Ir.Stmt inner : b.body) stmt(inner);
+            return;
+        }
+
+        current = s;
+        nextTemp = params; // temporaries never outlive their statement
+
+        if (s instanceof Ir.Assign a) {
+            if (a.target.kind == VarRef.Kind.RESULT) {
+                emit(Code.RETURN_VALUE, expr(a.value));
+            } else if (a.target.kind == VarRef.Kind.LOCAL && isCall(a.value)) {
+                call(a.value, a.target.slot); // result straight into the param slot
+            } else {
+                Ir.Expr v = expr(a.value);
+                emit(Code.EXEC, v == a.value ? a : new Ir.Assign(a.target, v));
+            }
+        } else if (s instanceof Ir.FieldStore fs) {
+            Ir.Expr v = expr(fs.value);
+            emit(Code.EXEC, v == fs.value ? fs : new Ir.FieldStore(fs.base, fs.field, v));
+        } else if (s instanceof Ir.IndexStore is) {
+            Ir.Expr v = hasCall(is.index) ? spill(expr(is.value)) : expr(is.value);
+            Ir.Expr i = expr(is.index);
+            emit(Code.EXEC, v == is.value && i == is.index ? is : new Ir.IndexStore(is.array, i, v, is.checked, is.name));
+        } else if (s instanceof Ir.ExprStmt es) {
+            if (isCall(es.expr)) {
+                call(es.expr, -1);
+            } else if (es.expr instanceof Ir.Writeln w) {
+                Ir.Expr[] args = args(w.args);
+                emit(Code.EXEC, args == w.args ? es : new Ir.ExprStmt(new Ir.Writeln(args)));
+            } else if (es.expr instanceof Ir.Readln r && r.target.kind == VarRef.Kind.RESULT) {
+                VarRef t = temp();
+                emit(Code.EXEC, new Ir.ExprStmt(new Ir.Readln(t)));
+                emit(Code.RETURN_VALUE, new Ir.Load(t));
+            } else {
+                Ir.Expr v = expr(es.expr);
+                emit(Code.EXEC, v == es.expr ? es : new Ir.ExprStmt(v));
+            }
+        } else if (s instanceof Ir.While w) {
+            if (staysInFrame(w)) {
+                emit(Code.EXEC, w);
+                return;
+            }
+            int top = len;
+            List<Integer> exits = new ArrayList<>();
+            branch(w.cond, false, exits);
+            stmt(w.body);
+            patch(emitJump(Code.JUMP, null), top);
+            patch(exits, len);
+        } else if (s instanceof Ir.For f) {
+            if (staysInFrame(f)) {
+                emit(Code.EXEC, f);
+                return;
+            }
+            Ir.Expr from = hasCall(f.limit) ? spill(expr(f.from)) : expr(f.from);
+            Ir.Expr limit = expr(f.limit);
+            int exit = emitJump(Code.FOR_INIT, new Code.ForInit(f, from, limit));
+            int body = len;
+            stmt(f.body);
+            patch(emitJump(Code.FOR_NEXT, f), body);
+            patch(exit, len);
+        } else {
+            throw new IllegalStateException("Cannot linearize " + s.getClass().getSimpleName());
+        }
+    }
+
+    // Emits jumps to `to` taken when x is `when`; and/or with calls on the right keep their short circuit
+    private void branch(Ir.Expr x, boolean when, List<Integer> to) {
+        if (hasCall(x) && x instanceof Ir.Not n) {
+            branch(n.operand, !when, to);
+            return;
+        }
+        if (hasCall(x) && x instanceof Ir.Logic l) {
+            if (l.and != when) {
+                // "and" is false, "or" is true, as soon as either operand is
+                branch(l.left, when, to);
+                branch(l.right, when, to);
+            } else {
+                List<Integer> skip = new ArrayList<>();
+                branch(l.left, !when, skip);
+                branch(l.right, when, to);
+                patch(skip, len);
+            }
+            return;
+        }
+        to.add(emitJump(when ? Code.JUMP_TRUE : Code.JUMP_FALSE, expr(x)));
+    }
+
+    // A loop runs as one EXEC unless something in it needs a Code instruction of its own
+    private static boolean staysInFrame(Ir.Stmt s) {
+        if (s instanceof Ir.Block b) {
+            for (Ir.Stmt inner : b.body) if (!staysInFrame(inner)) return false;
+            return true;
+        }
+        if (s instanceof Ir.Assign a) return a.target.kind != VarRef.Kind.RESULT && !leavesFrame(a.value);
+        if (s instanceof Ir.FieldStore fs) return !leavesFrame(fs.value);
+        if (s instanceof Ir.IndexStore is) return !leavesFrame(is.value) && !leavesFrame(is.index);
+        if (s instanceof Ir.ExprStmt es) return !leavesFrame(es.expr);
+        if (s instanceof Ir.While w) return !leavesFrame(w.cond) && staysInFrame(w.body);
+        if (s instanceof Ir.For f) return !leavesFrame(f.from) && !leavesFrame(f.limit) && staysInFrame(f.body);
+        return false;
+    }
+
+    // calls, and readln into the function result, which returns
+    private static boolean leavesFrame(Ir.Expr x) {
+        if (isCall(x)) return true;
+        if (x instanceof Ir.Readln r) return r.target.kind == VarRef.Kind.RESULT;
+        if (x instanceof Ir.Arith a) return leavesFrame(a.left) || leavesFrame(a.right);
+        if (x instanceof Ir.Compare c) return leavesFrame(c.left) || leavesFrame(c.right);
+        if (x instanceof Ir.Logic l) return leavesFrame(l.left) || leavesFrame(l.right);
+        if (x instanceof Ir.Not n) return leavesFrame(n.operand);
+        if (x instanceof Ir.Index ix) return leavesFrame(ix.index);
+        Ir.Expr[] args = x instanceof Ir.Writeln w ? w.args : x instanceof Ir.ArrayCall c ? c.args : new Ir.Expr[0];
+        for (Ir.Expr arg : args) if (leavesFrame(arg)) return true;
+        return false;
+    }
+
+    // frame slots taken by params, for-loop counters and limits, and locals of scalar-replaced objects
+    static int frameSlots(Ir.Stmt s, int params) {
+        int n = params;
+        if (s instanceof Ir.Block b) {
+            for (Ir.Stmt inner : b.body) n = Math.max(n, frameSlots(inner, params));
+        } else if (s instanceof Ir.While w) {
+            n = Math.max(n, frameSlots(w.body, params));
+        } else if (s instanceof Ir.For f) {
+            n = Math.max(f.slot + 2, frameSlots(f.body, params));
+            if (f.var.kind == VarRef.Kind.LOCAL) n = Math.max(n, f.var.slot + 1);
+        } else if (s instanceof Ir.Assign a && a.target.kind == VarRef.Kind.LOCAL) {
+            n = Math.max(n, a.target.slot + 1);
+        }
+        return n;
+    }
+
+    /* ===================== EXPRESSIONS ===================== */
+
+    // Returns a call-free equivalent of x, emitting the calls it contained
+    private Ir.Expr expr(Ir.Expr x) {
+        if (!hasCall(x)) return x;
+
+        if (x instanceof Ir.Arith a) {
+            Ir.Expr l = hasCall(a.right) ? spill(expr(a.left)) : expr(a.left);
+            return new Ir.Arith(a.op, l, expr(a.right));
+        }
+        if (x instanceof Ir.Compare c) {
+            Ir.Expr l = hasCall(c.right) ? spill(expr(c.left)) : expr(c.left);
+            return new Ir.Compare(c.op, l, expr(c.right));
+        }
+        if (x instanceof Ir.Not n) return new Ir.Not(expr(n.operand));
+        if (x instanceof Ir.Index ix) return new Ir.Index(ix.array, expr(ix.index), ix.checked, ix.name); // the array is a variable or field
+        if (x instanceof Ir.ArrayCall c) return new Ir.ArrayCall(c.fn, args(c.args));
+        if (x instanceof Ir.Logic l) {
+            if (!hasCall(l.right)) return new Ir.Logic(l.and, expr(l.left), l.right);
+            // the right operand's calls only run when the left one does not decide the result
+            VarRef t = temp();
+            List<Integer> done = new ArrayList<>();
+            emit(Code.EXEC, new Ir.Assign(t, truth(expr(l.left))));
+            done.add(emitJump(l.and ? Code.JUMP_FALSE : Code.JUMP_TRUE, new Ir.Load(t)));
+            emit(Code.EXEC, new Ir.Assign(t, truth(expr(l.right))));
+            patch(done, len);
+            return new Ir.Load(t);
+        }
+        if (isCall(x)) {
+            VarRef t = temp();
+            call(x, t.slot);
+            return new Ir.Load(t);
+        }
+        if (x instanceof Ir.Writeln w) {
+            // writeln used as a value: print, then the value is nil
+            emit(Code.EXEC, new Ir.ExprStmt(new Ir.Writeln(args(w.args))));
+            return new Ir.Const(Value.nil());
+        }
+        if (x instanceof Ir.Readln r) {
+            emit(Code.EXEC, new Ir.ExprStmt(r));
+            return new Ir.Const(Value.nil());
+        }
+        throw new IllegalStateException("Cannot linearize " + x.getClass().getSimpleName());
+    }
+
+    private void call(Ir.Expr x, int dest) {
+        if (x instanceof Ir.InstanceCall c) {
+            emit(Code.CALL, new Code.Call(c.site, c.receiver, callArgs(c.args), dest));
+        } else {
+            Ir.NewObject n = (Ir.NewObject) x;
+            emit(Code.NEW, new Code.New(n.cls, n.ctor, callArgs(n.args), dest));
+        }
+    }
+
+    // Arguments are evaluated into the slots above this frame, where an inlined call's
+    // fallback would push its own record; such arguments are computed into temporaries first
+    private Ir.Expr[] callArgs(Ir.Expr[] xs) {
+        Ir.Expr[] out = args(xs);
+        int last = -1;
+        for (int i = 0; i < out.length; i++) if (hasInlined(out[i])) last = i;
+        if (last < 0) return out;
+
+        out = out.clone();
+        for (int i = 0; i <= last; i++) out[i] = spill(out[i]);
+        return out;
+    }
+
+    private Ir.Expr[] args(Ir.Expr[] xs) {
+        int lastCall = -1;
+        for (int i = 0; i < xs.length; i++) if (hasCall(xs[i])) lastCall = i;
+        if (lastCall < 0) return xs;
+
+        Ir.Expr[] out = new Ir.Expr[xs.length];
+        for (int i = 0; i < xs.length; i++) out[i] = i < lastCall ? spill(expr(xs[i])) : expr(xs[i]);
+        return out;
+    }
+
+    private static Ir.Expr truth(Ir.Expr x) {
+        return new Ir.Compare(Ir.CompareOp.NE, x, new Ir.Const(Value.ofInt(0)));
+    }
+
+    // Pins x's value before a later call; calls cannot touch constants or this frame's slots
+    private Ir.Expr spill(Ir.Expr x) {
+        if (x instanceof Ir.Const || x instanceof Ir.LoopVar) return x;
+        if (x instanceof Ir.Load l && (l.ref.kind == VarRef.Kind.LOCAL || l.ref.kind == VarRef.Kind.SELF)) return x;
+        VarRef t = temp();
+        emit(Code.EXEC, new Ir.Assign(t, x));
+        return new Ir.Load(t);
+    }
+
+    private VarRef temp() {
+        int slot = nextTemp++;
+        maxSlots = Math.max(maxSlots, nextTemp);
+        return new VarRef(VarRef.Kind.LOCAL, slot, "$t" + (slot - params), null);
+    }
+
+    private static boolean isCall(Ir.Expr x) {
+        return x instanceof Ir.InstanceCall || x instanceof Ir.NewObject;
+    }
+
+    // anything that must be sequenced: calls, and writeln/readln used inside an expression
+    private static boolean hasCall(Ir.Expr x) {
+        if (isCall(x) || x instanceof Ir.Writeln || x instanceof Ir.Readln) return true;
+        if (x instanceof Ir.Arith a) return hasCall(a.left) || hasCall(a.right);
+        if (x instanceof Ir.Compare c) return hasCall(c.left) || hasCall(c.right);
+        if (x instanceof Ir.Logic l) return hasCall(l.left) || hasCall(l.right);
+        if (x instanceof Ir.Not n) return hasCall(n.operand);
+        if (x instanceof Ir.Index ix) return hasCall(ix.index);
+        if (x instanceof Ir.ArrayCall c) {
+            for (Ir.Expr arg : c.args) if (hasCall(arg)) return true;
+        }
+        return false;
+    }
+
+    private static boolean hasInlined(Ir.Expr x) {
+        if (x instanceof Ir.InlinedCall) return true;
+        if (x instanceof Ir.Arith a) return hasInlined(a.left) || hasInlined(a.right);
+        if (x instanceof Ir.Compare c) return hasInlined(c.left) || hasInlined(c.right);
+        if (x instanceof Ir.Logic l) return hasInlined(l.left) || hasInlined(l.right);
+        if (x instanceof Ir.Not n) return hasInlined(n.operand);
+        if (x instanceof Ir.Index ix) return hasInlined(ix.index);
+        if (x instanceof Ir.ArrayCall c) {
+            for (Ir.Expr arg : c.args) if (hasInlined(arg)) return true;
+        }
+        return false;
+    }
+
+    /* ===================== EMIT ===================== */
+
+    private void emit(int op, Object operand) {
+        emit(op, operand, current);
+        current = null; // only the first instruction of a statement carries it
+    }
+
+    private void emit(int op, Object operand, Ir.Stmt from) {
+        if (len + 2 > ops.length) ops = Arrays.copyOf(ops, ops.length * 2);
+        while (origin.size() < len) origin.add(null);
+        origin.add(from);
+        ops[len++] = op;
+        if (operand != null) {
+            consts.add(operand);
+            ops[len++] = consts.size() - 1;
+        }
+    }
+
+    // Emits a jump whose target is patched later; returns where the target goes
+    private int emitJump(int op, Object operand) {
+        emit(op, operand);
+        if (len + 1 > ops.length) ops = Arrays.copyOf(ops, ops.length * 2);
+        ops[len++] = -1;
+        return len - 1;
+    }
+
+    private void patch(int at, int target) {
+        ops[at] = target;
+    }
+
+    private void patch(List<Integer> at, int target) {
+        for (int a : at) patch(a, target);
+    }
+
+    private Ir.Stmt[] originArray() {
+        Ir.Stmt[] out = new Ir.Stmt[len];
+        for (int i = 0; i < origin.size() && i < len; i++) out[i] = origin.get(i);
+        return out;
+    }
+}
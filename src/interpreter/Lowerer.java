@@ -0,0 +1,301 @@
+package interpreter;
+
+import java.util.*;
+
+/*
+ * Turns parse-tree blocks into Ir. Runs once per method body and once for the
+ * main block, after all classes, globals and method headers are known. Errors
+ * that only depend on the program text (unknown names, bad static calls,
+ * malformed readln) are reported here instead of at run time.
+ */
+public final class Lowerer {
+
+    private final Program program;
+    private final Resolver resolver;
+
+    // for loops enclosing the statement being lowered, innermost last
+    private record Loop(VarRef var, int slot) {}
+    private final List<Loop> loops = new ArrayList<>();
+    private int firstLoopSlot;   // loop counters live in the frame slots after the params
+    private int exitsLowered = 0; // calls and function-result stores, after which var must be up to date
+
+    public Lowerer(Program program) {
+        this.program = program;
+        this.resolver = new Resolver(program);
+    }
+
+    public Ir.Stmt lowerBody(ClassDef cd, ClassDef.MethodInfo mi, delphiParser.BlockContext block) {
+        resolver.enter(cd, mi);
+        firstLoopSlot = mi == null ? 0 : mi.paramNames.size();
+        return lowerStmtList(block.stmtList());
+    }
+
+    /* ===================== STATEMENTS ===================== */
+
+    private Ir.Stmt lowerStmtList(delphiParser.StmtListContext ctx) {
+        List<Ir.Stmt> out = new ArrayList<>();
+        if (ctx != null) {
+            for (delphiParser.StatementContext s : ctx.statement()) {
+                Ir.Stmt st = lowerStatement(s);
+                if (st != null) out.add(st);
+            }
+        }
+        return new Ir.Block(out);
+    }
+
+    // null for empty statements, which are dropped
+    private Ir.Stmt lowerStatement(delphiParser.StatementContext ctx) {
+        if (ctx.assignment() != null) return lowerAssignment(ctx.assignment());
+        if (ctx.callStmt() != null) {
+            delphiParser.CallExprContext call = ctx.callStmt().callExpr();
+            if (call instanceof delphiParser.BuiltinOrProcCallContext bc && bc.ID().getText().equalsIgnoreCase("setlength"))
+                return lowerSetLength(bc);
+            return new Ir.ExprStmt(lowerCall(call));
+        }
+        if (ctx.compoundStmt() != null) return lowerStmtList(ctx.compoundStmt().stmtList());
+        if (ctx.forStmt() != null) return lowerFor(ctx.forStmt());
+        if (ctx.whileStmt() != null) {
+            delphiParser.WhileStmtContext w = ctx.whileStmt();
+            return new Ir.While(lowerExpr(w.expr()), lowerLoopBody(w.statement()));
+        }
+        return null;
+    }
+
+    private Ir.Stmt lowerFor(delphiParser.ForStmtContext ctx) {
+        VarRef var = resolver.lookup(ctx.ID().getText());
+        boolean variable = var.kind == VarRef.Kind.LOCAL || var.kind == VarRef.Kind.GLOBAL || var.kind == VarRef.Kind.FIELD;
+        if (!variable || !var.isInteger())
+            throw new RuntimeException("For loop control variable must be an integer variable: " + var.name + " (in " + resolver.where() + ")");
+        checkAssignable(var);
+
+        // bounds are lowered outside the loop: there var still means the variable, not the counter
+        Ir.Expr from = lowerExpr(ctx.expr(0));
+        Ir.Expr limit = lowerExpr(ctx.expr(1));
+
+        int slot = firstLoopSlot + 2 * loops.size(); // counter, then limit
+        int exits = exitsLowered;
+        loops.add(new Loop(var, slot));
+        Ir.Stmt body = lowerLoopBody(ctx.statement());
+        loops.remove(loops.size() - 1);
+
+        // a field can also be read as obj.field, which is not rewritten to the counter
+        boolean sync = exitsLowered > exits || var.kind == VarRef.Kind.FIELD;
+        return new Ir.For(var, from, limit, ctx.DOWNTO() != null, slot, body, sync);
+    }
+
+    private Ir.Stmt lowerLoopBody(delphiParser.StatementContext ctx) {
+        Ir.Stmt body = lowerStatement(ctx);
+        return body != null ? body : new Ir.Block(List.of());
+    }
+
+    private Loop loopOf(VarRef r) {
+        for (Loop l : loops) {
+            if (l.var.kind == r.kind && l.var.slot == r.slot) return l;
+        }
+        return null;
+    }
+
+    private void checkAssignable(VarRef r) {
+        if (loopOf(r) != null) throw new RuntimeException("For loop control variable cannot be assigned: " + r.name + " (in " + resolver.where() + ")");
+    }
+
+    private Ir.Stmt lowerAssignment(delphiParser.AssignmentContext ctx) {
+        delphiParser.LvalueContext lv = ctx.lvalue();
+        VarRef base = resolver.lookup(lv.ID(0).getText());
+        Ir.Expr rhs = lowerExpr(ctx.expr());
+
+        if (lv.expr() != null) return new Ir.IndexStore(lowerArray(lv), lowerExpr(lv.expr()), rhs, true);
+
+        // static arrays are storage, not references: whole-array assignment in either direction is rejected
+        String name = lv.getText();
+        IntArray.Type target = declaredArray(lv.ID().size() == 2 ? new Ir.FieldLoad(base, fieldSite(lv.ID(1).getText())) : new Ir.Load(base));
+        if (target != null && !target.dynamic())
+            throw new RuntimeException("Cannot assign to static array " + name + ", assign its elements (in " + resolver.where() + ")");
+        IntArray.Type source = declaredArray(rhs);
+        if (source != null && !source.dynamic())
+            throw new RuntimeException("Static array " + Ir.nameOf(rhs) + " cannot be assigned as a whole, use Copy (in " + resolver.where() + ")");
+
+        if (lv.ID().size() == 2) return new Ir.FieldStore(base, fieldSite(lv.ID(1).getText()), rhs);
+        if (base.kind == VarRef.Kind.SELF) throw new RuntimeException("Cannot assign to self (in " + resolver.where() + ")");
+        checkAssignable(base);
+        if (base.kind == VarRef.Kind.RESULT) exitsLowered++;
+        return new Ir.Assign(base, rhs);
+    }
+
+    /* ===================== CALLS ===================== */
+
+    private Ir.Expr lowerCall(delphiParser.CallExprContext ctx) {
+        if (ctx instanceof delphiParser.BuiltinOrProcCallContext bc) return lowerBuiltin(bc);
+        return lowerMethodOrStaticCall((delphiParser.MethodOrStaticCallContext) ctx);
+    }
+
+    private Ir.Expr lowerBuiltin(delphiParser.BuiltinOrProcCallContext ctx) {
+        String name = ctx.ID().getText().toLowerCase();
+
+        if (name.equals("writeln")) return new Ir.Writeln(lowerArgs(ctx.actualParams()));
+
+        if (name.equals("readln")) {
+            if (ctx.actualParams() == null || ctx.actualParams().expr().size() != 1)
+                throw new RuntimeException("readln expects exactly 1 argument");
+
+            // must be simple variable (integer)
+            var e = ctx.actualParams().expr(0);
+            if (!(e instanceof delphiParser.LvalExprContext lv))
+                throw new RuntimeException("readln argument must be a variable");
+            if (lv.lvalue().ID().size() != 1 || lv.lvalue().expr() != null) throw new RuntimeException("readln only supports simple integer vars");
+
+            VarRef target = resolver.lookup(lv.lvalue().ID(0).getText());
+            if (IntArray.Type.of(target.typeName) != null) throw new RuntimeException("readln only supports simple integer vars");
+            checkAssignable(target);
+            if (target.kind == VarRef.Kind.RESULT) exitsLowered++;
+            return new Ir.Readln(target);
+        }
+
+        Ir.ArrayFn fn = switch (name) {
+            case "length" -> Ir.ArrayFn.LENGTH;
+            case "low" -> Ir.ArrayFn.LOW;
+            case "high" -> Ir.ArrayFn.HIGH;
+            case "sum" -> Ir.ArrayFn.SUM;
+            case "fill" -> Ir.ArrayFn.FILL;
+            case "copy" -> Ir.ArrayFn.COPY;
+            case "setlength" -> throw new RuntimeException("SetLength is a procedure, it has no value (in " + resolver.where() + ")");
+            default -> throw new RuntimeException("Unknown procedure: " + name);
+        };
+        Ir.Expr[] args = lowerArgs(ctx.actualParams());
+        String arity = switch (fn) {
+            case FILL -> args.length == 2 ? null : "2 arguments";
+            case COPY -> args.length == 1 || args.length == 3 ? null : "1 or 3 arguments";
+            default -> args.length == 1 ? null : "1 argument";
+        };
+        if (arity != null) throw new RuntimeException(ctx.ID().getText() + " expects " + arity + " (in " + resolver.where() + ")");
+        requireArray(args[0], ctx.ID().getText(), ctx.actualParams().expr(0).getText());
+        return new Ir.ArrayCall(fn, args);
+    }
+
+    // SetLength(a, n) is the store a := <a resized to n>
+    private Ir.Stmt lowerSetLength(delphiParser.BuiltinOrProcCallContext ctx) {
+        var ap = ctx.actualParams();
+        if (ap == null || ap.expr().size() != 2 || !(ap.expr(0) instanceof delphiParser.LvalExprContext lv) || lv.lvalue().expr() != null)
+            throw new RuntimeException("SetLength expects an array variable and a length (in " + resolver.where() + ")");
+
+        Ir.Expr array = lowerExpr(ap.expr(0));
+        IntArray.Type type = declaredArray(array);
+        if (type != null && !type.dynamic()) throw new RuntimeException("SetLength needs a dynamic array: " + Ir.nameOf(array) + " (in " + resolver.where() + ")");
+        requireArray(array, "SetLength", lv.getText());
+        Ir.Expr resized = new Ir.ArrayCall(Ir.ArrayFn.RESIZE, new Ir.Expr[]{array, lowerExpr(ap.expr(1))});
+
+        if (array instanceof Ir.FieldLoad fl) return new Ir.FieldStore(fl.base, fl.field, resized);
+        VarRef target = ((Ir.Load) array).ref;
+        if (target.kind == VarRef.Kind.SELF || target.kind == VarRef.Kind.RESULT)
+            throw new RuntimeException("SetLength expects an array variable and a length (in " + resolver.where() + ")");
+        return new Ir.Assign(target, resized);
+    }
+
+    /* ===================== ARRAYS ===================== */
+
+    // the array part of an indexed lvalue: a variable or obj.field
+    private Ir.Expr lowerArray(delphiParser.LvalueContext lv) {
+        VarRef base = resolver.lookup(lv.ID(0).getText());
+        Ir.Expr array = lv.ID().size() == 2 ? new Ir.FieldLoad(base, fieldSite(lv.ID(1).getText())) : new Ir.Load(base);
+        requireArray(array, "Indexing", lv.getText().substring(0, lv.getText().indexOf('[')));
+        return array;
+    }
+
+    // Declared array type of a variable or of a field of a known class; null when not an array or unknown
+    private IntArray.Type declaredArray(Ir.Expr x) {
+        if (x instanceof Ir.Load l) return IntArray.Type.of(l.ref.typeName);
+        if (x instanceof Ir.FieldLoad fl && fl.base.typeName != null) {
+            ClassDef cd = program.classes.get(fl.base.typeName);
+            return cd == null ? null : IntArray.Type.of(cd.fieldTypes.get(fl.field.name));
+        }
+        return null;
+    }
+
+    // rejects what is known not to be an array; calls and fields of unknown classes are checked when they run
+    private void requireArray(Ir.Expr x, String what, String text) {
+        boolean known = x instanceof Ir.Load
+                || x instanceof Ir.FieldLoad fl && fl.base.typeName != null && program.classes.containsKey(fl.base.typeName)
+                && program.classes.get(fl.base.typeName).fieldTypes.containsKey(fl.field.name);
+        boolean array = declaredArray(x) != null
+                || x instanceof Ir.ArrayCall c && (c.fn == Ir.ArrayFn.COPY || c.fn == Ir.ArrayFn.RESIZE)
+                || x instanceof Ir.InstanceCall || x instanceof Ir.InlinedCall;
+        if (!array && (known || !(x instanceof Ir.FieldLoad)))
+            throw new RuntimeException(what + " needs an array: " + text + " (in " + resolver.where() + ")");
+    }
+
+    private Ir.Expr lowerMethodOrStaticCall(delphiParser.MethodOrStaticCallContext ctx) {
+        String left = ctx.ID(0).getText();   // could be className or varName
+        String member = ctx.ID(1).getText(); // method name
+        Ir.Expr[] args = lowerArgs(ctx.actualParams());
+        exitsLowered++;
+
+        if (!resolver.isClassName(left)) {
+            CallSite site = new CallSite(resolver.where() + ": " + left, member, resolver.currentClass());
+            program.callSites.add(site);
+            return new Ir.InstanceCall(resolver.lookup(left), site, args);
+        }
+
+        // Static call: only constructors, TClass.<CtorName>(...)
+        ClassDef cd = resolver.classNamed(left);
+        if (cd.constructor == null) throw new RuntimeException("No constructor implemented for class: " + cd.name);
+        if (!member.equalsIgnoreCase(cd.constructor.methodName))
+            throw new RuntimeException("Unsupported static call: " + cd.name + "." + member + " (expected constructor)");
+
+        return new Ir.NewObject(cd, cd.constructor, args);
+    }
+
+    private FieldSite fieldSite(String field) {
+        return new FieldSite(field, resolver.currentClass());
+    }
+
+    private Ir.Expr[] lowerArgs(delphiParser.ActualParamsContext ap) {
+        if (ap == null) return new Ir.Expr[0];
+        return ap.expr().stream().map(this::lowerExpr).toArray(Ir.Expr[]::new);
+    }
+
+    /* ===================== EXPRESSIONS ===================== */
+
+    private Ir.Expr lowerExpr(delphiParser.ExprContext ctx) {
+        if (ctx instanceof delphiParser.IntLitContext lit)
+            return new Ir.Const(Value.ofInt(Integer.parseInt(lit.INT().getText())));
+
+        if (ctx instanceof delphiParser.LvalExprContext lv) {
+            if (lv.lvalue().expr() != null) return new Ir.Index(lowerArray(lv.lvalue()), lowerExpr(lv.lvalue().expr()), true);
+            VarRef base = resolver.lookup(lv.lvalue().ID(0).getText());
+            if (lv.lvalue().ID().size() == 2) return new Ir.FieldLoad(base, fieldSite(lv.lvalue().ID(1).getText()));
+            Loop loop = loopOf(base);
+            return loop != null ? new Ir.LoopVar(loop.slot, base) : new Ir.Load(base);
+        }
+
+        if (ctx instanceof delphiParser.AddSubContext as) {
+            Ir.ArithOp op = as.op.getText().equals("+") ? Ir.ArithOp.ADD : Ir.ArithOp.SUB;
+            return new Ir.Arith(op, lowerExpr(as.expr(0)), lowerExpr(as.expr(1)));
+        }
+
+        if (ctx instanceof delphiParser.MulDivContext md) {
+            Ir.ArithOp op = md.op.getText().equals("*") ? Ir.ArithOp.MUL : Ir.ArithOp.DIV;
+            return new Ir.Arith(op, lowerExpr(md.expr(0)), lowerExpr(md.expr(1)));
+        }
+
+        if (ctx instanceof delphiParser.CompareContext c) {
+            Ir.CompareOp op = switch (c.op.getText()) {
+                case "=" -> Ir.CompareOp.EQ;
+                case "<>" -> Ir.CompareOp.NE;
+                case "<" -> Ir.CompareOp.LT;
+                case "<=" -> Ir.CompareOp.LE;
+                case ">" -> Ir.CompareOp.GT;
+                default -> Ir.CompareOp.GE;
+            };
+            return new Ir.Compare(op, lowerExpr(c.expr(0)), lowerExpr(c.expr(1)));
+        }
+
+        if (ctx instanceof delphiParser.AndExprContext a) return new Ir.Logic(true, lowerExpr(a.expr(0)), lowerExpr(a.expr(1)));
+        if (ctx instanceof delphiParser.OrExprContext o) return new Ir.Logic(false, lowerExpr(o.expr(0)), lowerExpr(o.expr(1)));
+        if (ctx instanceof delphiParser.NotExprContext n) return new Ir.Not(lowerExpr(n.expr()));
+
+        if (ctx instanceof delphiParser.CallExprAltContext call) return lowerCall(call.callExpr());
+        if (ctx instanceof delphiParser.ParensContext p) return lowerExpr(p.expr());
+
+        throw new RuntimeException("Unsupported expression: " + ctx.getText());
+    }
+}
@@ -0,0 +1,114 @@
+package interpreter;
+
+import java.io.PrintStream;
+
+/*
+ * Resource accounting for one execution, enabled with --meter or any --max-...
+ * limit. The Engine reports every statement, call and allocation here; with no
+ * meter attached each report is a single null check.
+ *
+ *   statements  statements run (not counting begin/end blocks) plus one per
+ *               loop iteration, the same whether a body is interpreted, run as
+ *               a native loop or compiled; the Optimizer's dead stores and
+ *               scalar-replaced calls are gone, so --no-opt can count more
+ *   calls       constructor, method and destructor calls, inlined ones included
+ *   depth       nesting of running bodies, interpreted and compiled alike
+ *   objects     objects created (recycled pool objects included)
+ *   cells       field slots and integer array elements allocated, by objects,
+ *               SetLength and Copy
+ *
+ * A limit is checked before the statement, call or allocation that would
+ * exceed it, which is then not counted, so hitting one ends the run with
+ * LimitExceeded (a RuntimeException) rather than a StackOverflowError or
+ * OutOfMemoryError; output written so far is flushed as for any runtime
+ * error. The counters stay readable after the run, including after a limit
+ * ended it.
+ */
+public final class Meter {
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    public record Limits(long statements, long calls, long depth, long objects, long cells) {
+        public static final Limits NONE = new Limits(UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED);
+
+        public Limits withStatements(long n) { return new Limits(n, calls, depth, objects, cells); }
+        public Limits withCalls(long n) { return new Limits(statements, n, depth, objects, cells); }
+        public Limits withDepth(long n) { return new Limits(statements, calls, n, objects, cells); }
+        public Limits withObjects(long n) { return new Limits(statements, calls, depth, n, cells); }
+        public Limits withCells(long n) { return new Limits(statements, calls, depth, objects, n); }
+    }
+
+    public static final class LimitExceeded extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public final String counter;
+        public final long limit;
+
+        LimitExceeded(String counter, long limit) {
+            super("Execution limit exceeded: " + counter + " > " + limit);
+            this.counter = counter;
+            this.limit = limit;
+        }
+    }
+
+    public final Limits limits;
+    private long statements, calls, objects, cells;
+    private long maxDepth;
+
+    public Meter(Limits limits) {
+        this.limits = limits;
+        this.maxDepth = 1; // the main block
+    }
+
+    /* ===================== COUNTING (called by the Engine) ===================== */
+
+    void statements(int n) {
+        if (n > limits.statements - statements) throw new LimitExceeded("statements", limits.statements);
+        statements += n;
+    }
+
+    // depth: nesting of the body about to start, main block = 1
+    void call(int depth) {
+        if (calls == limits.calls) throw new LimitExceeded("calls", limits.calls);
+        if (depth > maxDepth) {
+            if (depth > limits.depth) throw new LimitExceeded("depth", limits.depth);
+            maxDepth = depth;
+        }
+        calls++;
+    }
+
+    // an inlined call runs no body, so it cannot go deeper
+    void inlinedCall() {
+        if (calls == limits.calls) throw new LimitExceeded("calls", limits.calls);
+        calls++;
+    }
+
+    void object(ClassDef cd) {
+        if (objects == limits.objects) throw new LimitExceeded("objects", limits.objects);
+        long n = cd.fieldNames.length;
+        if (cd.hasArrayFields) {
+            for (IntArray.Type t : cd.fieldArrays) {
+                if (t != null && !t.dynamic()) n += t.length();
+            }
+        }
+        cells(n);
+        objects++;
+    }
+
+    void cells(long n) {
+        if (n <= 0) return;
+        if (n > limits.cells - cells) throw new LimitExceeded("cells", limits.cells);
+        cells += n;
+    }
+
+    /* ===================== METRICS ===================== */
+
+    public long statements() { return statements; }
+    public long calls() { return calls; }
+    public long maxDepth() { return maxDepth; }
+    public long objects() { return objects; }
+    public long cells() { return cells; }
+
+    public void report(PrintStream out) {
+        out.printf("meter: statements=%d calls=%d max-depth=%d objects=%d cells=%d%n", statements, calls, maxDepth, objects, cells);
+    }
+}
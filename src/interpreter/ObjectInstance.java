@@ -1,18 +1,38 @@
 package interpreter;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 public final class ObjectInstance {
-    public final ClassDef klass;
-    public final Map<String, Value> fields = new HashMap<>();
+    // replaced by ClassDef.DESTROYED only when an ObjectPool poisons the object
+    public ClassDef klass;
+
+    // indexed by the offsets in klass.fieldIndex
+    public final Value[] fields;
+
+    // set by ObjectPool.release; cleared when the object is reused
+    boolean destroyed = false;
 
     public ObjectInstance(ClassDef k) {
         this.klass = k;
-        // initialize declared fields
-        for (String f : k.fields.keySet()) {
-            // this language subset uses only integers for fields in tests; default to 0
-            fields.put(f, Value.ofInt(0));
+        this.fields = new Value[k.fieldNames.length];
+        reset();
+    }
+
+    void reset() {
+        // this language subset uses only integers for fields in tests; default to 0
+        Arrays.fill(fields, Value.ofInt(0));
+        if (klass.hasArrayFields) {
+            // fresh storage even for a recycled object: the old array may still be referenced
+            IntArray.Type[] types = klass.fieldArrays;
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] != null) fields[i] = types[i].initial();
+            }
         }
+        destroyed = false;
+    }
+
+    void poison() {
+        klass = ClassDef.DESTROYED;
+        Arrays.fill(fields, Value.nil());
     }
 }
@@ -0,0 +1,89 @@
+package interpreter;
+
+import java.util.*;
+
+/*
+ * Per-class free lists for one execution. executeDestructor hands the object
+ * back after a successful Destroy and executeConstructor takes it again, with
+ * every field reset, instead of allocating. Each list holds at most maxPerClass
+ * objects; releases beyond that are left to the GC.
+ *
+ * As in Delphi, a reference kept past Destroy is dangling: once the object is
+ * reused it aliases the new instance. Debug (poison) mode never reuses: a
+ * destroyed object's class becomes ClassDef.DESTROYED and its fields nil, so
+ * any later field access or method call through it fails with "Use of
+ * destroyed object", and reading its own fields after self.Destroy() fails on
+ * the nil.
+ */
+public final class ObjectPool {
+    public static final int DEFAULT_MAX_PER_CLASS = 256;
+
+    private static final class FreeList {
+        ObjectInstance[] items = new ObjectInstance[8];
+        int size;
+        long constructed, reused, released, dropped;
+    }
+
+    private final int maxPerClass;
+    private final boolean poison;
+    private final Map<ClassDef, FreeList> lists = new IdentityHashMap<>();
+
+    // one-entry cache: create/destroy loops usually stay on one class
+    private ClassDef lastClass;
+    private FreeList lastList;
+
+    public ObjectPool(int maxPerClass, boolean poison) {
+        this.maxPerClass = maxPerClass;
+        this.poison = poison;
+    }
+
+    private FreeList listFor(ClassDef cd) {
+        if (cd == lastClass) return lastList;
+        FreeList l = lists.computeIfAbsent(cd, k -> new FreeList());
+        lastClass = cd;
+        lastList = l;
+        return l;
+    }
+
+    ObjectInstance acquire(ClassDef cd) {
+        FreeList l = listFor(cd);
+        l.constructed++;
+        if (l.size == 0) return new ObjectInstance(cd);
+
+        ObjectInstance obj = l.items[--l.size];
+        l.items[l.size] = null;
+        l.reused++;
+        obj.reset();
+        return obj;
+    }
+
+    void release(ObjectInstance obj) {
+        if (obj.destroyed) return; // repeated Destroy must not put the object in the list twice
+        obj.destroyed = true;
+
+        FreeList l = listFor(obj.klass);
+        l.released++;
+        if (poison) {
+            obj.poison();
+            return;
+        }
+        if (l.size == maxPerClass) {
+            l.dropped++;
+            return;
+        }
+        if (l.size == l.items.length) l.items = Arrays.copyOf(l.items, Math.min(maxPerClass, l.size * 2));
+        l.items[l.size++] = obj;
+    }
+
+    // One line per class: constructions, how many reused a pooled object, releases and overflow drops
+    public List<String> stats() {
+        List<String> out = new ArrayList<>();
+        for (var e : lists.entrySet()) {
+            FreeList l = e.getValue();
+            double hitRate = l.constructed == 0 ? 0.0 : 100.0 * l.reused / l.constructed;
+            out.add(String.format("%s: constructed=%d reused=%d (%.1f%%) released=%d dropped=%d pooled=%d",
+                    e.getKey().name, l.constructed, l.reused, hitRate, l.released, l.dropped, l.size));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,552 @@
+package interpreter;
+
+import java.util.*;
+
+/*
+ * Load-time rewrites of the verified Ir, run before Program.link() unless the
+ * loader is told not to (--no-opt):
+ *
+ *  - arithmetic, comparisons and logic over integer literals are folded, and
+ *    chains like x * 60 * 60 are regrouped to x * 3600 (int arithmetic wraps,
+ *    so this is exact); division by a literal zero is left alone so it still
+ *    fails at run time
+ *  - nested and empty compound statements are flattened away, and anything
+ *    after "FuncName := ..." is dropped since that statement returns
+ *  - a store of a constant or variable that is overwritten before anything
+ *    can read it is removed, as is "x := x"; loop bodies are handled on
+ *    their own, and a loop stops the search for overwrites across it
+ *  - Length/Low/High of a static array become constants, and an array access
+ *    loses its bounds check when the index is provably in range: a constant
+ *    (or loop counter plus constant) within a static array's bounds, or the
+ *    counter of a loop running from Low(a) to High(a) whose body cannot
+ *    replace a
+ *  - obj.M(...) is inlined when M is a one-statement, call-free method of the
+ *    receiver's declared class and every argument is a constant or variable
+ *    (see Ir.InlinedCall for the guard that keeps dispatch exact)
+ *  - an object created, used only as a receiver or field base and destroyed
+ *    within one statement list is never allocated: its fields become frame
+ *    slots and its constructor, methods and destructor are inlined (see
+ *    ScalarReplacement)
+ *
+ * Nothing here changes what a program prints or which errors it raises. Calls
+ * that were inlined and objects that were replaced no longer show up in
+ * --ic-stats, --profile, --pool-stats or the --meter call and object counts.
+ */
+public final class Optimizer {
+
+    private final Program program;
+    private boolean inlining = false;
+
+    // what is known about the counters of the for loops around the current statement, by slot
+    private record Counter(long min, long max, VarRef covers) {} // min > max: no constant range; covers may be null
+    private final Map<Integer, Counter> counters = new HashMap<>();
+
+    public Optimizer(Program program) {
+        this.program = program;
+    }
+
+    public void optimize() {
+        // simplify every body first, so whether a callee is small enough does not depend on visiting order
+        rewriteAll();
+        new ScalarReplacement(program).run();
+        inlining = true;
+        rewriteAll();
+    }
+
+    private void rewriteAll() {
+        for (ClassDef cd : program.classes.values()) {
+            for (ClassDef.MethodInfo mi : cd.methods.values()) {
+                if (mi.body != null) mi.body = body(mi.body);
+            }
+        }
+        program.main = body(program.main);
+    }
+
+    /* ===================== STATEMENTS ===================== */
+
+    private Ir.Stmt body(Ir.Stmt root) {
+        List<Ir.Stmt> out = new ArrayList<>();
+        flatten(root, out);
+        return new Ir.Block(removeDeadStores(out));
+    }
+
+    // false once a statement that returns has been added: whatever follows it never runs
+    private boolean flatten(Ir.Stmt s, List<Ir.Stmt> out) {
+        if (s instanceof Ir.Block b) {
+            for (Ir.Stmt inner : b.body) {
+                if (!flatten(inner, out)) return false;
+            }
+            return true;
+        }
+        Ir.Stmt r = stmt(s);
+        out.add(r);
+        return !returns(r);
+    }
+
+    private static boolean returns(Ir.Stmt s) {
+        if (s instanceof Ir.Assign a) return a.target.kind == VarRef.Kind.RESULT;
+        return s instanceof Ir.ExprStmt es && es.expr instanceof Ir.Readln r && r.target.kind == VarRef.Kind.RESULT;
+    }
+
+    private Ir.Stmt stmt(Ir.Stmt s) {
+        if (s instanceof Ir.Assign a) {
+            Ir.Expr v = expr(a.value);
+            return v == a.value ? a : new Ir.Assign(a.target, v);
+        }
+        if (s instanceof Ir.FieldStore fs) {
+            Ir.Expr v = expr(fs.value);
+            return v == fs.value ? fs : new Ir.FieldStore(fs.base, fs.field, v);
+        }
+        if (s instanceof Ir.ExprStmt es) {
+            Ir.Expr v = expr(es.expr);
+            return v == es.expr ? es : new Ir.ExprStmt(v);
+        }
+        if (s instanceof Ir.IndexStore is) {
+            Ir.Expr a = expr(is.array), i = expr(is.index), v = expr(is.value);
+            boolean checked = is.checked && !inRange(a, i);
+            return a == is.array && i == is.index && v == is.value && checked == is.checked ? is : new Ir.IndexStore(a, i, v, checked, is.name);
+        }
+        if (s instanceof Ir.While w) return new Ir.While(expr(w.cond), body(w.body));
+        if (s instanceof Ir.For f) {
+            Ir.Expr from = expr(f.from), limit = expr(f.limit);
+            counters.put(f.slot, counter(f, from, limit));
+            Ir.Stmt body = body(f.body);
+            counters.remove(f.slot);
+            return new Ir.For(f.var, from, limit, f.down, f.slot, body, f.sync);
+        }
+        return s;
+    }
+
+    /* ===================== EXPRESSIONS ===================== */
+
+    private Ir.Expr expr(Ir.Expr x) {
+        if (x instanceof Ir.Arith a) {
+            Ir.Expr l = expr(a.left), r = expr(a.right);
+            Ir.Expr f = fold(a.op, l, r);
+            if (f != null) return f;
+            return l == a.left && r == a.right ? a : new Ir.Arith(a.op, l, r);
+        }
+        if (x instanceof Ir.Compare c) {
+            Ir.Expr l = expr(c.left), r = expr(c.right);
+            Integer a = intConst(l), b = intConst(r);
+            if (a != null && b != null) return intExpr(new Ir.Compare(c.op, l, r).evalInt(null));
+            return l == c.left && r == c.right ? c : new Ir.Compare(c.op, l, r);
+        }
+        if (x instanceof Ir.Logic g) {
+            Ir.Expr l = expr(g.left), r = expr(g.right);
+            Integer a = intConst(l);
+            if (a != null && (a != 0) != g.and) return intExpr(a != 0 ? 1 : 0); // the left operand decides
+            if (a != null && intConst(r) != null) return intExpr(intConst(r) != 0 ? 1 : 0);
+            return l == g.left && r == g.right ? g : new Ir.Logic(g.and, l, r);
+        }
+        if (x instanceof Ir.Not n) {
+            Ir.Expr o = expr(n.operand);
+            Integer a = intConst(o);
+            if (a != null) return intExpr(a == 0 ? 1 : 0);
+            return o == n.operand ? n : new Ir.Not(o);
+        }
+        if (x instanceof Ir.Index ix) {
+            Ir.Expr a = expr(ix.array), i = expr(ix.index);
+            boolean checked = ix.checked && !inRange(a, i);
+            return a == ix.array && i == ix.index && checked == ix.checked ? ix : new Ir.Index(a, i, checked, ix.name);
+        }
+        if (x instanceof Ir.ArrayCall c) {
+            Ir.Expr[] args = exprs(c.args);
+            IntArray.Type t = args[0] instanceof Ir.Load l ? IntArray.Type.of(l.ref.typeName) : null;
+            if (t != null && !t.dynamic()) {
+                switch (c.fn) {
+                    case LENGTH: return intExpr(t.length());
+                    case LOW: return intExpr(t.low());
+                    case HIGH: return intExpr(t.high());
+                    default: break;
+                }
+            }
+            return args == c.args ? c : new Ir.ArrayCall(c.fn, args);
+        }
+        if (x instanceof Ir.InstanceCall c) {
+            Ir.Expr[] args = exprs(c.args);
+            Ir.Expr in = inlining ? inline(c, args) : null;
+            if (in != null) return in;
+            return args == c.args ? c : new Ir.InstanceCall(c.receiver, c.site, args);
+        }
+        if (x instanceof Ir.NewObject n) {
+            Ir.Expr[] args = exprs(n.args);
+            return args == n.args ? n : new Ir.NewObject(n.cls, n.ctor, args);
+        }
+        if (x instanceof Ir.Writeln w) {
+            Ir.Expr[] args = exprs(w.args);
+            return args == w.args ? w : new Ir.Writeln(args);
+        }
+        return x;
+    }
+
+    // same array when nothing changed
+    private Ir.Expr[] exprs(Ir.Expr[] xs) {
+        Ir.Expr[] out = xs;
+        for (int i = 0; i < xs.length; i++) {
+            Ir.Expr v = expr(xs[i]);
+            if (v != xs[i]) {
+                if (out == xs) out = xs.clone();
+                out[i] = v;
+            }
+        }
+        return out;
+    }
+
+    // null when there is nothing to fold
+    private Ir.Expr fold(Ir.ArithOp op, Ir.Expr l, Ir.Expr r) {
+        Integer a = intConst(l), b = intConst(r);
+        if (b == null) return null;
+
+        if (a != null) {
+            if (op == Ir.ArithOp.DIV && b == 0) return null; // keep the run-time error
+            return intExpr(switch (op) {
+                case ADD -> a + b;
+                case SUB -> a - b;
+                case MUL -> a * b;
+                case DIV -> a / b;
+            });
+        }
+
+        // (e + c1) - c2 -> e + (c1 - c2), (e * c1) * c2 -> e * (c1 * c2)
+        if (l instanceof Ir.Arith inner && intConst(inner.right) != null) {
+            int c = intConst(inner.right);
+            if (additive(op) && additive(inner.op)) {
+                int k = (inner.op == Ir.ArithOp.ADD ? c : -c) + (op == Ir.ArithOp.ADD ? b : -b);
+                return new Ir.Arith(Ir.ArithOp.ADD, inner.left, intExpr(k));
+            }
+            if (op == Ir.ArithOp.MUL && inner.op == Ir.ArithOp.MUL) {
+                return new Ir.Arith(Ir.ArithOp.MUL, inner.left, intExpr(c * b));
+            }
+        }
+        return null;
+    }
+
+    private static boolean additive(Ir.ArithOp op) {
+        return op == Ir.ArithOp.ADD || op == Ir.ArithOp.SUB;
+    }
+
+    private static Integer intConst(Ir.Expr x) {
+        return x instanceof Ir.Const c && c.value.kind == Value.Kind.INT ? c.value.asInt() : null;
+    }
+
+    private static Ir.Expr intExpr(int v) {
+        return new Ir.Const(Value.ofInt(v));
+    }
+
+    /* ===================== BOUNDS CHECKS ===================== */
+
+    private Counter counter(Ir.For f, Ir.Expr from, Ir.Expr limit) {
+        Integer a = intConst(from), b = intConst(limit);
+        long min = 1, max = 0;
+        if (a != null && b != null) {
+            min = Math.min(a, b);
+            max = Math.max(a, b);
+        }
+        // Low(v) to High(v), or High(v) downto Low(v)
+        VarRef low = arrayOf(f.down ? limit : from, Ir.ArrayFn.LOW), high = arrayOf(f.down ? from : limit, Ir.ArrayFn.HIGH);
+        VarRef covers = low != null && high != null && same(low, high) && !mayReplace(f.body, low) ? low : null;
+        return new Counter(min, max, covers);
+    }
+
+    // v when x is fn(v) for an array variable v
+    private static VarRef arrayOf(Ir.Expr x, Ir.ArrayFn fn) {
+        return x instanceof Ir.ArrayCall c && c.fn == fn && c.args[0] instanceof Ir.Load l ? l.ref : null;
+    }
+
+    private static boolean same(VarRef a, VarRef b) {
+        return a.kind == b.kind && a.slot == b.slot;
+    }
+
+    // Whether s may make v refer to another array. Params only change by assignment; anything a
+    // call can reach also changes through calls, and fields of self through any obj.field store.
+    private static boolean mayReplace(Ir.Stmt s, VarRef v) {
+        if (s instanceof Ir.Block b) {
+            for (Ir.Stmt inner : b.body) if (mayReplace(inner, v)) return true;
+            return false;
+        }
+        if (s instanceof Ir.While w) return mayReplace(w.cond, v) || mayReplace(w.body, v);
+        if (s instanceof Ir.For f) return mayReplace(f.from, v) || mayReplace(f.limit, v) || mayReplace(f.body, v);
+        if (s instanceof Ir.Assign a) return same(a.target, v) || mayReplace(a.value, v);
+        if (s instanceof Ir.FieldStore fs) return v.kind == VarRef.Kind.FIELD || mayReplace(fs.value, v);
+        if (s instanceof Ir.IndexStore is) return mayReplace(is.value, v) || mayReplace(is.index, v);
+        if (s instanceof Ir.ExprStmt es) return mayReplace(es.expr, v);
+        return true;
+    }
+
+    private static boolean mayReplace(Ir.Expr x, VarRef v) {
+        if (x instanceof Ir.InstanceCall || x instanceof Ir.NewObject || x instanceof Ir.InlinedCall) return v.kind != VarRef.Kind.LOCAL;
+        if (x instanceof Ir.Readln r) return same(r.target, v);
+        if (x instanceof Ir.Arith a) return mayReplace(a.left, v) || mayReplace(a.right, v);
+        if (x instanceof Ir.Compare c) return mayReplace(c.left, v) || mayReplace(c.right, v);
+        if (x instanceof Ir.Logic l) return mayReplace(l.left, v) || mayReplace(l.right, v);
+        if (x instanceof Ir.Not n) return mayReplace(n.operand, v);
+        if (x instanceof Ir.Index ix) return mayReplace(ix.index, v);
+        Ir.Expr[] args = x instanceof Ir.Writeln w ? w.args : x instanceof Ir.ArrayCall c ? c.args : new Ir.Expr[0];
+        for (Ir.Expr arg : args) if (mayReplace(arg, v)) return true;
+        return false;
+    }
+
+    private boolean inRange(Ir.Expr array, Ir.Expr index) {
+        if (!(array instanceof Ir.Load l)) return false;
+        if (index instanceof Ir.LoopVar lv) {
+            Counter c = counters.get(lv.slot);
+            if (c != null && c.covers != null && same(c.covers, l.ref)) return true;
+        }
+        IntArray.Type t = IntArray.Type.of(l.ref.typeName);
+        if (t == null || t.dynamic()) return false;
+        long[] r = range(index);
+        return r != null && r[0] >= t.low() && r[1] <= t.high();
+    }
+
+    // {min, max} of an int expression built from constants and loop counters, else null
+    private long[] range(Ir.Expr x) {
+        Integer k = intConst(x);
+        if (k != null) return new long[]{k, k};
+        if (x instanceof Ir.LoopVar lv) {
+            Counter c = counters.get(lv.slot);
+            return c != null && c.min <= c.max ? new long[]{c.min, c.max} : null;
+        }
+        if (x instanceof Ir.Arith a && (a.op == Ir.ArithOp.ADD || a.op == Ir.ArithOp.SUB)) {
+            long[] l = range(a.left), r = range(a.right);
+            if (l == null || r == null) return null;
+            long[] out = a.op == Ir.ArithOp.ADD ? new long[]{l[0] + r[0], l[1] + r[1]} : new long[]{l[0] - r[1], l[1] - r[0]};
+            // int arithmetic wraps; a range that leaves int says nothing
+            return out[0] >= Integer.MIN_VALUE && out[1] <= Integer.MAX_VALUE ? out : null;
+        }
+        return null;
+    }
+
+    /* ===================== INLINING ===================== */
+
+    private static final class NotInlinable extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        NotInlinable() { super(null, null, false, false); }
+    }
+
+    private static final NotInlinable NOT_INLINABLE = new NotInlinable();
+
+    // null unless the call can be replaced by the callee's body
+    private Ir.Expr inline(Ir.InstanceCall c, Ir.Expr[] args) {
+        ClassDef cd = c.receiver.typeName == null ? null : program.classes.get(c.receiver.typeName);
+        if (cd == null || cd.isInterface) return null;
+        int slot = cd.slotOf(c.site.method);
+        if (slot < 0) return null;
+        ClassDef.MethodInfo mi = cd.vtable[slot];
+        if (mi.body == null || mi == cd.constructor) return null;
+
+        // the call must bind exactly as CallSite would: an ordinary method, visible from here
+        if (cd.targets[slot].isDestructor()) return null;
+        if (!ClassDef.accessible(cd.vtableVis[slot], c.site.context, cd.vtableOwners[slot])) return null;
+        if (args.length != mi.paramNames.size()) return null;
+        for (Ir.Expr a : args) {
+            if (!(a instanceof Ir.Const || a instanceof Ir.Load || a instanceof Ir.LoopVar)) return null;
+        }
+
+        Ir.Stmt[] body = ((Ir.Block) mi.body).body;
+        if (body.length > 1) return null;
+
+        // an inherited body's bare fields are accessed as its own class would access them
+        Substitution sub = new Substitution(c.receiver, program.classes.get(mi.className), args);
+        Ir.Stmt effect = null;
+        Ir.Expr value = null;
+        try {
+            if (body.length == 1) {
+                if (body[0] instanceof Ir.Assign a && a.target.kind == VarRef.Kind.RESULT) value = expr(sub.expr(a.value));
+                else effect = stmt(sub.stmt(body[0]));
+            }
+        } catch (NotInlinable ex) {
+            return null;
+        }
+        if (value == null && mi.isFunction) value = intExpr(0);
+
+        return new Ir.InlinedCall(c.receiver, cd, c.site, args, effect, value, body.length);
+    }
+
+    // Rewrites a callee statement into the caller's terms: self is the receiver, params are the arguments
+    private static final class Substitution {
+        private final VarRef receiver;
+        private final ClassDef context; // the callee's class, for its field accesses
+        private final Ir.Expr[] args;
+
+        Substitution(VarRef receiver, ClassDef context, Ir.Expr[] args) {
+            this.receiver = receiver;
+            this.context = context;
+            this.args = args;
+        }
+
+        Ir.Stmt stmt(Ir.Stmt s) {
+            if (s instanceof Ir.Assign a) {
+                if (a.target.kind == VarRef.Kind.FIELD) return new Ir.FieldStore(receiver, new FieldSite(a.target.name, context), expr(a.value));
+                if (a.target.kind == VarRef.Kind.GLOBAL) return new Ir.Assign(a.target, expr(a.value));
+                throw NOT_INLINABLE;
+            }
+            if (s instanceof Ir.FieldStore fs) return new Ir.FieldStore(base(fs.base), fs.field, expr(fs.value));
+            if (s instanceof Ir.IndexStore is) return new Ir.IndexStore(expr(is.array), expr(is.index), expr(is.value), is.checked, is.name);
+            if (s instanceof Ir.ExprStmt es && es.expr instanceof Ir.Writeln w) {
+                Ir.Expr[] out = new Ir.Expr[w.args.length];
+                for (int i = 0; i < out.length; i++) out[i] = expr(w.args[i]);
+                return new Ir.ExprStmt(new Ir.Writeln(out));
+            }
+            throw NOT_INLINABLE;
+        }
+
+        Ir.Expr expr(Ir.Expr x) {
+            if (x instanceof Ir.Const) return x;
+            if (x instanceof Ir.Load l) {
+                return switch (l.ref.kind) {
+                    case LOCAL -> args[l.ref.slot];
+                    case FIELD -> new Ir.FieldLoad(receiver, new FieldSite(l.ref.name, context));
+                    case SELF -> new Ir.Load(receiver);
+                    case RESULT -> intExpr(0); // as in RuntimeEnv.load
+                    case GLOBAL -> x;
+                };
+            }
+            if (x instanceof Ir.FieldLoad fl) return new Ir.FieldLoad(base(fl.base), fl.field);
+            if (x instanceof Ir.Arith a) return new Ir.Arith(a.op, expr(a.left), expr(a.right));
+            if (x instanceof Ir.Compare c) return new Ir.Compare(c.op, expr(c.left), expr(c.right));
+            if (x instanceof Ir.Logic g) return new Ir.Logic(g.and, expr(g.left), expr(g.right));
+            if (x instanceof Ir.Not n) return new Ir.Not(expr(n.operand));
+            if (x instanceof Ir.Index ix) return new Ir.Index(expr(ix.array), expr(ix.index), ix.checked, ix.name);
+            if (x instanceof Ir.ArrayCall c) {
+                Ir.Expr[] out = new Ir.Expr[c.args.length];
+                for (int i = 0; i < out.length; i++) out[i] = expr(c.args[i]);
+                return new Ir.ArrayCall(c.fn, out);
+            }
+            throw NOT_INLINABLE; // calls, writeln/readln
+        }
+
+        // the object a callee "base.field" refers to, as a caller variable
+        private VarRef base(VarRef r) {
+            VarRef out = switch (r.kind) {
+                case SELF -> receiver;
+                case GLOBAL -> r;
+                case LOCAL -> args[r.slot] instanceof Ir.Load l ? l.ref : null;
+                default -> null;
+            };
+            // an integer variable would be rejected by the Verifier instead of failing at run time
+            if (out == null || out.isInteger()) throw NOT_INLINABLE;
+            return out;
+        }
+    }
+
+    /* ===================== DEAD STORES ===================== */
+
+    // Locations stored again later with no possible read in between, per kind of location
+    private static final class Overwritten {
+        private final Set<Integer> locals = new HashSet<>();
+        private Set<Integer> globals = new HashSet<>();
+        private Set<Integer> fields = new HashSet<>();
+
+        private Set<Integer> of(VarRef r) {
+            return switch (r.kind) {
+                case LOCAL -> locals;
+                case GLOBAL -> globals;
+                case FIELD -> fields;
+                default -> null; // self and the result are never tracked
+            };
+        }
+
+        boolean contains(VarRef r) {
+            Set<Integer> s = of(r);
+            return s != null && s.contains(r.slot);
+        }
+
+        void add(VarRef r) {
+            Set<Integer> s = of(r);
+            if (s != null) s.add(r.slot);
+        }
+
+        void read(VarRef r) {
+            Set<Integer> s = of(r);
+            if (s != null) s.remove(r.slot);
+        }
+
+        // replaced rather than cleared: clear() costs the table's capacity and calls are frequent
+        void fieldsRead() {
+            fields = new HashSet<>();
+        }
+
+        // a call may read globals and any object's fields, never our params
+        void call() {
+            globals = new HashSet<>();
+            fields = new HashSet<>();
+        }
+
+        void clear() {
+            locals.clear();
+            call();
+        }
+    }
+
+    // Walks a straight-line body backwards, dropping stores that are overwritten before any read
+    private List<Ir.Stmt> removeDeadStores(List<Ir.Stmt> body) {
+        Overwritten overwritten = new Overwritten();
+        List<Ir.Stmt> kept = new ArrayList<>(body.size());
+
+        for (int i = body.size() - 1; i >= 0; i--) {
+            Ir.Stmt s = body.get(i);
+            if (s instanceof Ir.Assign a) {
+                // only values that cannot fail may be dropped with their store
+                boolean total = a.value instanceof Ir.Const || a.value instanceof Ir.Load || a.value instanceof Ir.LoopVar;
+                boolean selfCopy = a.value instanceof Ir.Load l && l.ref.kind == a.target.kind && l.ref.slot == a.target.slot;
+                if (total && (overwritten.contains(a.target) || selfCopy && a.target.kind != VarRef.Kind.RESULT)) continue;
+                overwritten.add(a.target);
+                reads(a.value, overwritten);
+            } else if (s instanceof Ir.FieldStore fs) {
+                overwritten.read(fs.base);
+                reads(fs.value, overwritten);
+            } else if (s instanceof Ir.IndexStore is) {
+                reads(is.array, overwritten);
+                reads(is.index, overwritten);
+                reads(is.value, overwritten);
+            } else if (s instanceof Ir.ExprStmt es) {
+                reads(es.expr, overwritten);
+            } else {
+                overwritten.clear();
+            }
+            kept.add(s);
+        }
+        Collections.reverse(kept);
+        return kept;
+    }
+
+    private static void reads(Ir.Expr x, Overwritten overwritten) {
+        if (x instanceof Ir.Load l) {
+            overwritten.read(l.ref);
+        } else if (x instanceof Ir.FieldLoad fl) {
+            overwritten.read(fl.base);
+            overwritten.fieldsRead();
+        } else if (x instanceof Ir.Arith a) {
+            reads(a.left, overwritten);
+            reads(a.right, overwritten);
+        } else if (x instanceof Ir.Compare c) {
+            reads(c.left, overwritten);
+            reads(c.right, overwritten);
+        } else if (x instanceof Ir.Logic g) {
+            reads(g.left, overwritten);
+            reads(g.right, overwritten);
+        } else if (x instanceof Ir.Not n) {
+            reads(n.operand, overwritten);
+        } else if (x instanceof Ir.Index ix) {
+            reads(ix.array, overwritten);
+            reads(ix.index, overwritten);
+        } else if (x instanceof Ir.ArrayCall c) {
+            for (Ir.Expr arg : c.args) reads(arg, overwritten);
+        } else if (x instanceof Ir.Writeln w) {
+            for (Ir.Expr arg : w.args) reads(arg, overwritten);
+        } else if (x instanceof Ir.NewObject n) {
+            for (Ir.Expr arg : n.args) reads(arg, overwritten);
+            overwritten.call();
+        } else if (x instanceof Ir.InstanceCall c) {
+            for (Ir.Expr arg : c.args) reads(arg, overwritten);
+            overwritten.read(c.receiver);
+            overwritten.call();
+        } else if (x instanceof Ir.InlinedCall c) {
+            for (Ir.Expr arg : c.args) reads(arg, overwritten);
+            overwritten.read(c.receiver);
+            overwritten.call();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package interpreter;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Wall-clock time per startup phase (lexing, parsing, class registration,
+ * method attachment, lowering, execution), for the --timings report. Phases
+ * are reported in the order they were first recorded.
+ */
+public final class PhaseTimes {
+    private final Map<String, Long> nanos = new LinkedHashMap<>();
+
+    // Adds the time since `start` to `phase` and returns now, so marks can be chained
+    public long mark(String phase, long start) {
+        long now = System.nanoTime();
+        nanos.merge(phase, now - start, Long::sum);
+        return now;
+    }
+
+    public void report(PrintStream out) {
+        long total = 0;
+        for (long n : nanos.values()) total += n;
+
+        for (var e : nanos.entrySet()) {
+            out.printf("%-22s %10.2f ms %6.1f%%%n", e.getKey(), e.getValue() / 1e6, total == 0 ? 0.0 : 100.0 * e.getValue() / total);
+        }
+        out.printf("%-22s %10.2f ms%n", "total", total / 1e6);
+    }
+}
@@ -0,0 +1,209 @@
+package interpreter;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.*;
+
+/*
+ * Instrumenting profiler for one execution, enabled with --profile. The Engine
+ * calls enter/exit around every constructor, method and destructor body and
+ * allocated() for every new object; with no profiler attached those are a
+ * single null check each.
+ *
+ * Calls are aggregated into a tree keyed by call path, which gives collapsed
+ * stacks (one "main;TA.Create;TB.Run <microseconds>" line per path, the input
+ * format of flamegraph.pl and speedscope), and into per-method totals for the
+ * text summary. Inclusive time counts only the outermost activation of a
+ * recursive method, so it never exceeds the run time.
+ *
+ * Optional statement sampling (samplePeriod > 0) records the call path and the
+ * statement about to run once every samplePeriod interpreted statements, fed
+ * by Engine's loop from Code.origin.
+ * Bodies running in the compiled tier still report calls but not statements.
+ */
+public final class Profiler {
+
+    private static final class Node {
+        final String name;
+        final Map<Object, Node> children = new HashMap<>();
+        long calls, exclusiveNanos;
+
+        Node(String name) {
+            this.name = name;
+        }
+
+        Node child(Object key, String name) {
+            return children.computeIfAbsent(key, k -> new Node(name));
+        }
+    }
+
+    private static final class MethodStats {
+        final String name;
+        long calls, inclusiveNanos, exclusiveNanos;
+        int active; // live activations, for recursion-safe inclusive time
+
+        MethodStats(String name) {
+            this.name = name;
+        }
+    }
+
+    private final Node root = new Node("main");
+    private final Map<ClassDef.MethodInfo, MethodStats> methods = new IdentityHashMap<>();
+    private final Map<ClassDef, long[]> allocations = new IdentityHashMap<>();
+
+    // activation stack, parallel arrays indexed by depth (0 = main block)
+    private Node[] nodes = new Node[64];
+    private MethodStats[] stats = new MethodStats[64];
+    private long[] starts = new long[64];
+    private long[] childNanos = new long[64];
+    private int depth = 0;
+
+    private final int samplePeriod;
+    private int untilSample;
+    private final Map<Node, Map<String, long[]>> samples = new IdentityHashMap<>();
+
+    public Profiler(int samplePeriod) {
+        this.samplePeriod = samplePeriod;
+        this.untilSample = samplePeriod;
+    }
+
+    /* ===================== HOOKS (called by Engine) ===================== */
+
+    void start() {
+        nodes[0] = root;
+        root.calls++;
+        starts[0] = System.nanoTime();
+        childNanos[0] = 0;
+    }
+
+    void stop() {
+        root.exclusiveNanos += System.nanoTime() - starts[0] - childNanos[0];
+    }
+
+    void enter(ClassDef.MethodInfo mi) {
+        if (++depth == nodes.length) grow();
+        Node n = nodes[depth - 1].child(mi, mi.className + "." + mi.methodName);
+        n.calls++;
+        MethodStats s = methods.computeIfAbsent(mi, k -> new MethodStats(k.className + "." + k.methodName));
+        s.calls++;
+        s.active++;
+
+        nodes[depth] = n;
+        stats[depth] = s;
+        childNanos[depth] = 0;
+        starts[depth] = System.nanoTime();
+    }
+
+    void exit() {
+        long elapsed = System.nanoTime() - starts[depth];
+        long exclusive = elapsed - childNanos[depth];
+        MethodStats s = stats[depth];
+
+        nodes[depth].exclusiveNanos += exclusive;
+        s.exclusiveNanos += exclusive;
+        if (--s.active == 0) s.inclusiveNanos += elapsed;
+
+        depth--;
+        childNanos[depth] += elapsed;
+    }
+
+    void allocated(ClassDef cd) {
+        allocations.computeIfAbsent(cd, k -> new long[1])[0]++;
+    }
+
+    void statement(Ir.Stmt s) {
+        if (s == null || samplePeriod == 0 || --untilSample > 0) return;
+        untilSample = samplePeriod;
+        samples.computeIfAbsent(nodes[depth], k -> new HashMap<>()).computeIfAbsent(label(s), k -> new long[1])[0]++;
+    }
+
+    private void grow() {
+        int n = nodes.length * 2;
+        nodes = Arrays.copyOf(nodes, n);
+        stats = Arrays.copyOf(stats, n);
+        starts = Arrays.copyOf(starts, n);
+        childNanos = Arrays.copyOf(childNanos, n);
+    }
+
+    private static String label(Ir.Stmt s) {
+        if (s instanceof Ir.Assign a) return a.target.name + " :=";
+        if (s instanceof Ir.FieldStore fs) return fs.base.name + "." + fs.field.name + " :=";
+        if (s instanceof Ir.ExprStmt es) {
+            if (es.expr instanceof Ir.InstanceCall c) return c.receiver.name + "." + c.site.method + "()";
+            if (es.expr instanceof Ir.NewObject n) return n.cls.name + "." + n.ctor.methodName + "()";
+            if (es.expr instanceof Ir.Writeln) return "writeln";
+            if (es.expr instanceof Ir.Readln) return "readln";
+        }
+        return s.getClass().getSimpleName();
+    }
+
+    /* ===================== OUTPUT ===================== */
+
+    // Collapsed stacks weighted by exclusive microseconds
+    public void writeCollapsed(PrintWriter out) {
+        collapsed(root, root.name, out);
+        out.flush();
+    }
+
+    private void collapsed(Node n, String path, PrintWriter out) {
+        long micros = n.exclusiveNanos / 1000;
+        if (micros > 0) out.println(path + " " + micros);
+        for (Node c : n.children.values()) collapsed(c, path + ";" + c.name, out);
+    }
+
+    public boolean hasSamples() {
+        return !samples.isEmpty();
+    }
+
+    // Collapsed stacks of statement samples, the statement as the leaf frame
+    public void writeSamples(PrintWriter out) {
+        sampleLines(root, root.name, out);
+        out.flush();
+    }
+
+    private void sampleLines(Node n, String path, PrintWriter out) {
+        Map<String, long[]> s = samples.get(n);
+        if (s != null) s.forEach((stmt, count) -> out.println(path + ";" + stmt + " " + count[0]));
+        for (Node c : n.children.values()) sampleLines(c, path + ";" + c.name, out);
+    }
+
+    public void printSummary(PrintStream out, int top) {
+        List<MethodStats> ms = new ArrayList<>(methods.values());
+        ms.sort(Comparator.comparingLong((MethodStats s) -> s.exclusiveNanos).reversed());
+
+        out.printf("%-32s %10s %12s %12s%n", "method", "calls", "incl ms", "excl ms");
+        out.printf("%-32s %10d %12.3f %12.3f%n", root.name, 1, totalNanos(root) / 1e6, root.exclusiveNanos / 1e6);
+        for (MethodStats s : ms.subList(0, Math.min(top, ms.size()))) {
+            out.printf("%-32s %10d %12.3f %12.3f%n", s.name, s.calls, s.inclusiveNanos / 1e6, s.exclusiveNanos / 1e6);
+        }
+
+        if (!allocations.isEmpty()) {
+            List<Map.Entry<ClassDef, long[]>> as = new ArrayList<>(allocations.entrySet());
+            as.sort(Comparator.comparingLong((Map.Entry<ClassDef, long[]> e) -> e.getValue()[0]).reversed());
+            out.printf("%n%-32s %10s%n", "class", "objects");
+            for (var e : as.subList(0, Math.min(top, as.size()))) out.printf("%-32s %10d%n", e.getKey().name, e.getValue()[0]);
+        }
+
+        if (!samples.isEmpty()) {
+            Map<String, long[]> byStmt = new HashMap<>();
+            collectSamples(root, root.name, byStmt);
+            List<Map.Entry<String, long[]>> ss = new ArrayList<>(byStmt.entrySet());
+            ss.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed());
+            out.printf("%n%-48s %10s%n", "statement (sampled)", "samples");
+            for (var e : ss.subList(0, Math.min(top, ss.size()))) out.printf("%-48s %10d%n", e.getKey(), e.getValue()[0]);
+        }
+    }
+
+    // keyed by innermost method + statement, so the same statement is merged across call paths
+    private void collectSamples(Node n, String method, Map<String, long[]> out) {
+        Map<String, long[]> s = samples.get(n);
+        if (s != null) s.forEach((stmt, count) -> out.computeIfAbsent(method + ": " + stmt, k -> new long[1])[0] += count[0]);
+        for (Node c : n.children.values()) collectSamples(c, c.name, out);
+    }
+
+    private static long totalNanos(Node n) {
+        long t = n.exclusiveNanos;
+        for (Node c : n.children.values()) t += totalNanos(c);
+        return t;
+    }
+}
@@ -0,0 +1,68 @@
+package interpreter;
+
+import java.util.*;
+
+/*
+ * A loaded program: class definitions with their lowered method bodies, the
+ * global variable layout and the main block. It is filled in by the loader
+ * (DelphiInterpreter or ProgramImage) and never changes afterwards, so one
+ * Program can back any number of concurrent executions, each with its own
+ * Engine, RuntimeEnv and ConsoleIO. The only state written after loading is
+ * the inline caches in FieldSite/CallSite and the compiled-tier fields of
+ * MethodInfo and Program, and those tolerate races.
+ */
+public final class Program {
+    public final Map<String, ClassDef> classes = new LinkedHashMap<>(); // declaration order
+
+    // global vars: name -> slot is fixed at load time; each execution copies the initial values
+    public final Map<String, Integer> globalSlots = new LinkedHashMap<>();
+    public final Map<String, String> globalTypes = new HashMap<>();
+    private Value[] globalInit = new Value[0];
+
+    // every instance call site in the program, for inline-cache stats
+    public final List<CallSite> callSites = new ArrayList<>();
+
+    public Ir.Stmt main;
+    public Code mainCode;
+
+    // compiled tier state, owned by Jit: set once the eager tier has compiled the whole program
+    public volatile CompiledBody compiledMain = null;
+    public volatile boolean jitDone = false;
+
+    public void declareGlobal(String name, String typeName, Value init) {
+        globalTypes.put(name, typeName);
+        Integer slot = globalSlots.get(name);
+        if (slot == null) {
+            slot = globalSlots.size();
+            globalSlots.put(name, slot);
+            // grown geometrically: programs may declare tens of thousands of globals
+            if (slot == globalInit.length) globalInit = Arrays.copyOf(globalInit, Math.max(8, slot * 2));
+        }
+        globalInit[slot] = init;
+    }
+
+    // Builds the linear Code the Engine runs, once all bodies are lowered and verified
+    public void link() {
+        for (ClassDef cd : classes.values()) {
+            for (ClassDef.MethodInfo mi : cd.methods.values()) {
+                if (mi.body != null) mi.code = Linearizer.linearize(mi.body, mi.paramNames.size());
+            }
+        }
+        mainCode = Linearizer.linearize(main, 0);
+    }
+
+    public Value[] initialGlobals() {
+        Value[] g = Arrays.copyOf(globalInit, globalSlots.size());
+        for (int i = 0; i < g.length; i++) {
+            if (g[i].kind == Value.Kind.ARRAY) g[i] = Value.ofArray(g[i].arrVal.copy()); // static arrays are per execution
+        }
+        return g;
+    }
+
+    // Value of a freshly declared global of the given type
+    public static Value initialValue(String typeName) {
+        if ("integer".equalsIgnoreCase(typeName)) return Value.ofInt(0);
+        IntArray.Type at = IntArray.Type.of(typeName);
+        return at != null ? at.initial() : Value.nil(); // object refs start as nil
+    }
+}
@@ -0,0 +1,458 @@
+package interpreter;
+
+import java.io.*;
+import java.util.*;
+
+/*
+ * Binary image of a loaded program: globals, class definitions with their field
+ * layouts and method signatures, and every lowered body. Reading an image
+ * rebuilds the same RuntimeEnv and Ir the loader would produce, without
+ * touching ANTLR, then re-runs the Verifier to prime the access-site caches.
+ * Bodies are stored after the Optimizer ran, so images never re-optimise.
+ *
+ * Layout (DataOutput encoding):
+ *   int MAGIC, short VERSION
+ *   globals:  count, then (name, typeName?)
+ *   classes:  count, then header per class (see writeClass), parents first
+ *   bodies:   per class in order, count, then (methodName, stmt)
+ *   main:     stmt
+ * Strings marked ? are nullable (boolean flag + UTF).
+ *
+ * Bump VERSION whenever the layout or the set of Ir nodes changes.
+ */
+public final class ProgramImage {
+    public static final int MAGIC = 0x44504931; // "DPI1"
+    public static final short VERSION = 8;
+
+    private ProgramImage() {}
+
+    // node tags
+    private static final int S_BLOCK = 1, S_ASSIGN = 2, S_FIELD_STORE = 3, S_EXPR = 4, S_WHILE = 5, S_FOR = 6, S_INDEX_STORE = 7;
+    private static final int E_CONST = 10, E_LOAD = 11, E_FIELD_LOAD = 12, E_ARITH = 13,
+            E_NEW = 14, E_CALL = 15, E_WRITELN = 16, E_READLN = 17, E_INLINED = 18,
+            E_COMPARE = 19, E_LOGIC = 20, E_NOT = 21, E_LOOP_VAR = 22,
+            E_INDEX = 23, E_ARRAY_CALL = 24, E_NIL = 25;
+
+    public static boolean isImage(byte[] head) {
+        return head.length >= 4
+                && ((head[0] & 0xff) << 24 | (head[1] & 0xff) << 16 | (head[2] & 0xff) << 8 | (head[3] & 0xff)) == MAGIC;
+    }
+
+    /* ===================== WRITE ===================== */
+
+    public static void write(Program program, OutputStream os) throws IOException {
+        new Writer(program, new DataOutputStream(new BufferedOutputStream(os))).write(program.main);
+    }
+
+    private static final class Writer {
+        private final Program program;
+        private final DataOutputStream out;
+        private final List<ClassDef> classes;
+        private final Map<ClassDef, Integer> classIndex = new HashMap<>();
+
+        Writer(Program program, DataOutputStream out) {
+            this.program = program;
+            this.out = out;
+            this.classes = new ArrayList<>(program.classes.values());
+            for (int i = 0; i < classes.size(); i++) classIndex.put(classes.get(i), i);
+        }
+
+        void write(Ir.Stmt main) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+
+            out.writeInt(program.globalSlots.size());
+            for (String g : program.globalSlots.keySet()) { // slot order
+                out.writeUTF(g);
+                str(program.globalTypes.get(g));
+            }
+
+            out.writeInt(classes.size());
+            for (ClassDef cd : classes) writeClass(cd);
+
+            for (ClassDef cd : classes) {
+                List<ClassDef.MethodInfo> impl = cd.methods.values().stream().filter(m -> m.body != null).toList();
+                out.writeInt(impl.size());
+                for (ClassDef.MethodInfo mi : impl) {
+                    out.writeUTF(mi.methodName);
+                    stmt(mi.body);
+                }
+            }
+
+            stmt(main);
+            out.flush();
+        }
+
+        private void writeClass(ClassDef cd) throws IOException {
+            out.writeUTF(cd.name);
+            out.writeBoolean(cd.isInterface);
+            out.writeInt(cd.parent == null ? -1 : classIndex.get(cd.parent)); // declared earlier, so read earlier
+            out.writeInt(cd.interfaces.size());
+            for (ClassDef iface : cd.interfaces) out.writeInt(classIndex.get(iface));
+
+            out.writeInt(cd.fields.size()); // declaration order == layout order after the parent's fields
+            for (var f : cd.fields.entrySet()) {
+                out.writeUTF(f.getKey());
+                out.writeByte(f.getValue().ordinal());
+                str(cd.fieldTypes.get(f.getKey()));
+            }
+
+            out.writeInt(cd.methodVis.size());
+            for (var m : cd.methodVis.entrySet()) {
+                out.writeUTF(m.getKey());
+                out.writeByte(m.getValue().ordinal());
+            }
+
+            out.writeInt(cd.methods.size());
+            for (ClassDef.MethodInfo mi : cd.methods.values()) {
+                out.writeUTF(mi.methodName);
+                out.writeBoolean(mi.isFunction);
+                out.writeInt(mi.paramNames.size());
+                for (int i = 0; i < mi.paramNames.size(); i++) {
+                    out.writeUTF(mi.paramNames.get(i));
+                    out.writeUTF(mi.paramTypes.get(i));
+                }
+                str(mi.returnType);
+            }
+
+            // inherited ones are linked again on read
+            str(own(cd, cd.constructor));
+            str(own(cd, cd.destructor));
+        }
+
+        private static String own(ClassDef cd, ClassDef.MethodInfo mi) {
+            return mi != null && cd.methods.get(mi.methodName) == mi ? mi.methodName : null;
+        }
+
+        private void stmt(Ir.Stmt s) throws IOException {
+            if (s instanceof Ir.Block b) {
+                out.writeByte(S_BLOCK);
+                out.writeInt(b.body.length);
+                for (Ir.Stmt inner : b.body) stmt(inner);
+            } else if (s instanceof Ir.Assign a) {
+                out.writeByte(S_ASSIGN);
+                ref(a.target);
+                expr(a.value);
+            } else if (s instanceof Ir.FieldStore fs) {
+                out.writeByte(S_FIELD_STORE);
+                ref(fs.base);
+                fieldSite(fs.field);
+                expr(fs.value);
+            } else if (s instanceof Ir.ExprStmt es) {
+                out.writeByte(S_EXPR);
+                expr(es.expr);
+            } else if (s instanceof Ir.IndexStore is) {
+                out.writeByte(S_INDEX_STORE);
+                expr(is.array);
+                expr(is.index);
+                expr(is.value);
+                out.writeBoolean(is.checked);
+                out.writeUTF(is.name);
+            } else if (s instanceof Ir.While w) {
+                out.writeByte(S_WHILE);
+                expr(w.cond);
+                stmt(w.body);
+            } else if (s instanceof Ir.For f) {
+                out.writeByte(S_FOR);
+                ref(f.var);
+                expr(f.from);
+                expr(f.limit);
+                out.writeBoolean(f.down);
+                out.writeInt(f.slot);
+                stmt(f.body);
+                out.writeBoolean(f.sync);
+            } else {
+                throw new IllegalStateException("No image encoding for " + s.getClass().getSimpleName());
+            }
+        }
+
+        private void expr(Ir.Expr x) throws IOException {
+            if (x instanceof Ir.Const c && c.value.kind == Value.Kind.NIL) {
+                out.writeByte(E_NIL); // an empty array, from a scalar-replaced object's field
+            } else if (x instanceof Ir.Const c) {
+                out.writeByte(E_CONST);
+                out.writeInt(c.value.asInt());
+            } else if (x instanceof Ir.Load l) {
+                out.writeByte(E_LOAD);
+                ref(l.ref);
+            } else if (x instanceof Ir.FieldLoad fl) {
+                out.writeByte(E_FIELD_LOAD);
+                ref(fl.base);
+                fieldSite(fl.field);
+            } else if (x instanceof Ir.Arith a) {
+                out.writeByte(E_ARITH);
+                out.writeByte(a.op.ordinal());
+                expr(a.left);
+                expr(a.right);
+            } else if (x instanceof Ir.Compare c) {
+                out.writeByte(E_COMPARE);
+                out.writeByte(c.op.ordinal());
+                expr(c.left);
+                expr(c.right);
+            } else if (x instanceof Ir.Logic l) {
+                out.writeByte(E_LOGIC);
+                out.writeBoolean(l.and);
+                expr(l.left);
+                expr(l.right);
+            } else if (x instanceof Ir.Not n) {
+                out.writeByte(E_NOT);
+                expr(n.operand);
+            } else if (x instanceof Ir.Index ix) {
+                out.writeByte(E_INDEX);
+                expr(ix.array);
+                expr(ix.index);
+                out.writeBoolean(ix.checked);
+                out.writeUTF(ix.name);
+            } else if (x instanceof Ir.ArrayCall c) {
+                out.writeByte(E_ARRAY_CALL);
+                out.writeByte(c.fn.ordinal());
+                exprs(c.args);
+            } else if (x instanceof Ir.LoopVar lv) {
+                out.writeByte(E_LOOP_VAR);
+                out.writeInt(lv.slot);
+                ref(lv.var);
+            } else if (x instanceof Ir.NewObject n) {
+                out.writeByte(E_NEW);
+                out.writeInt(classIndex.get(n.cls));
+                out.writeUTF(n.ctor.methodName);
+                exprs(n.args);
+            } else if (x instanceof Ir.InstanceCall c) {
+                out.writeByte(E_CALL);
+                ref(c.receiver);
+                callSite(c.site);
+                exprs(c.args);
+            } else if (x instanceof Ir.InlinedCall c) {
+                out.writeByte(E_INLINED);
+                ref(c.receiver);
+                out.writeInt(classIndex.get(c.cls));
+                callSite(c.site);
+                exprs(c.args);
+                out.writeBoolean(c.effect != null);
+                if (c.effect != null) stmt(c.effect);
+                out.writeBoolean(c.value != null);
+                if (c.value != null) expr(c.value);
+                out.writeByte(c.statements);
+            } else if (x instanceof Ir.Writeln w) {
+                out.writeByte(E_WRITELN);
+                exprs(w.args);
+            } else if (x instanceof Ir.Readln r) {
+                out.writeByte(E_READLN);
+                ref(r.target);
+            } else {
+                throw new IllegalStateException("No image encoding for " + x.getClass().getSimpleName());
+            }
+        }
+
+        private void exprs(Ir.Expr[] xs) throws IOException {
+            out.writeInt(xs.length);
+            for (Ir.Expr x : xs) expr(x);
+        }
+
+        private void ref(VarRef r) throws IOException {
+            out.writeByte(r.kind.ordinal());
+            out.writeInt(r.slot);
+            out.writeUTF(r.name);
+            str(r.typeName);
+        }
+
+        private void callSite(CallSite site) throws IOException {
+            out.writeUTF(site.label);
+            out.writeUTF(site.method);
+            classRef(site.context);
+        }
+
+        private void fieldSite(FieldSite fs) throws IOException {
+            out.writeUTF(fs.name);
+            classRef(fs.context);
+        }
+
+        private void classRef(ClassDef cd) throws IOException {
+            out.writeInt(cd == null ? -1 : classIndex.get(cd));
+        }
+
+        private void str(String s) throws IOException {
+            out.writeBoolean(s != null);
+            if (s != null) out.writeUTF(s);
+        }
+    }
+
+    /* ===================== READ ===================== */
+
+    public static Program read(InputStream is) throws IOException {
+        return new Reader(new DataInputStream(new BufferedInputStream(is))).read();
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private final Program program = new Program();
+        private final List<ClassDef> classes = new ArrayList<>();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        Program read() throws IOException {
+            if (in.readInt() != MAGIC) throw new IOException("Not a program image");
+            short v = in.readShort();
+            if (v != VERSION) throw new IOException("Unsupported program image version " + v + " (expected " + VERSION + ")");
+
+            int globals = in.readInt();
+            for (int i = 0; i < globals; i++) {
+                String name = in.readUTF();
+                String type = str();
+                program.declareGlobal(name, type, Program.initialValue(type));
+            }
+
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) classes.add(readClass());
+
+            List<ClassDef.MethodInfo> bodies = new ArrayList<>();
+            for (ClassDef cd : classes) {
+                int impl = in.readInt();
+                for (int i = 0; i < impl; i++) {
+                    ClassDef.MethodInfo mi = cd.methods.get(in.readUTF());
+                    mi.body = stmt();
+                    bodies.add(mi);
+                }
+            }
+            program.main = stmt();
+
+            Verifier verifier = new Verifier(program);
+            for (ClassDef.MethodInfo mi : bodies) verifier.verify(mi.body);
+            verifier.verify(program.main);
+
+            program.link();
+            return program;
+        }
+
+        private ClassDef readClass() throws IOException {
+            String className = in.readUTF();
+            boolean isInterface = in.readBoolean();
+            int parent = in.readInt();
+            ClassDef cd = new ClassDef(className, parent < 0 ? null : classes.get(parent), isInterface);
+            int interfaces = in.readInt();
+            for (int i = 0; i < interfaces; i++) cd.interfaces.add(classes.get(in.readInt()));
+
+            int fields = in.readInt();
+            for (int i = 0; i < fields; i++) {
+                String f = in.readUTF();
+                cd.fields.put(f, ClassDef.Vis.values()[in.readByte()]);
+                cd.fieldTypes.put(f, str());
+            }
+            cd.layoutFields();
+
+            int vis = in.readInt();
+            for (int i = 0; i < vis; i++) cd.methodVis.put(in.readUTF(), ClassDef.Vis.values()[in.readByte()]);
+
+            int methods = in.readInt();
+            for (int i = 0; i < methods; i++) {
+                String name = in.readUTF();
+                boolean isFunction = in.readBoolean();
+                int params = in.readInt();
+                List<String> names = new ArrayList<>(), types = new ArrayList<>();
+                for (int p = 0; p < params; p++) {
+                    names.add(in.readUTF());
+                    types.add(in.readUTF());
+                }
+                cd.methods.put(name, new ClassDef.MethodInfo(cd.name, name, isFunction, names, types, str()));
+            }
+
+            String ctor = str(), dtor = str();
+            if (ctor != null) cd.constructor = cd.methods.get(ctor);
+            if (dtor != null) cd.destructor = cd.methods.get(dtor);
+            cd.link();
+
+            program.classes.put(cd.name, cd);
+            return cd;
+        }
+
+        private Ir.Stmt stmt() throws IOException {
+            int tag = in.readByte();
+            return switch (tag) {
+                case S_BLOCK -> {
+                    int n = in.readInt();
+                    List<Ir.Stmt> body = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) body.add(stmt());
+                    yield new Ir.Block(body);
+                }
+                case S_ASSIGN -> new Ir.Assign(ref(), expr());
+                case S_FIELD_STORE -> new Ir.FieldStore(ref(), fieldSite(), expr());
+                case S_EXPR -> new Ir.ExprStmt(expr());
+                case S_INDEX_STORE -> new Ir.IndexStore(expr(), expr(), expr(), in.readBoolean(), in.readUTF());
+                case S_WHILE -> new Ir.While(expr(), stmt());
+                case S_FOR -> new Ir.For(ref(), expr(), expr(), in.readBoolean(), in.readInt(), stmt(), in.readBoolean());
+                default -> throw new IOException("Corrupt program image: statement tag " + tag);
+            };
+        }
+
+        private Ir.Expr expr() throws IOException {
+            int tag = in.readByte();
+            return switch (tag) {
+                case E_CONST -> new Ir.Const(Value.ofInt(in.readInt()));
+                case E_NIL -> new Ir.Const(Value.nil());
+                case E_LOAD -> new Ir.Load(ref());
+                case E_FIELD_LOAD -> new Ir.FieldLoad(ref(), fieldSite());
+                case E_ARITH -> new Ir.Arith(Ir.ArithOp.values()[in.readByte()], expr(), expr());
+                case E_COMPARE -> new Ir.Compare(Ir.CompareOp.values()[in.readByte()], expr(), expr());
+                case E_LOGIC -> new Ir.Logic(in.readBoolean(), expr(), expr());
+                case E_NOT -> new Ir.Not(expr());
+                case E_LOOP_VAR -> new Ir.LoopVar(in.readInt(), ref());
+                case E_INDEX -> new Ir.Index(expr(), expr(), in.readBoolean(), in.readUTF());
+                case E_ARRAY_CALL -> new Ir.ArrayCall(Ir.ArrayFn.values()[in.readByte()], exprs());
+                case E_NEW -> {
+                    ClassDef cd = classes.get(in.readInt());
+                    yield new Ir.NewObject(cd, cd.vtable[cd.slotOf(in.readUTF())], exprs()); // possibly inherited
+                }
+                case E_CALL -> {
+                    VarRef recv = ref();
+                    yield new Ir.InstanceCall(recv, callSite(), exprs());
+                }
+                case E_INLINED -> {
+                    VarRef recv = ref();
+                    ClassDef cd = classes.get(in.readInt());
+                    CallSite site = callSite();
+                    Ir.Expr[] args = exprs();
+                    Ir.Stmt effect = in.readBoolean() ? stmt() : null;
+                    Ir.Expr value = in.readBoolean() ? expr() : null;
+                    yield new Ir.InlinedCall(recv, cd, site, args, effect, value, in.readByte());
+                }
+                case E_WRITELN -> new Ir.Writeln(exprs());
+                case E_READLN -> new Ir.Readln(ref());
+                default -> throw new IOException("Corrupt program image: expression tag " + tag);
+            };
+        }
+
+        private Ir.Expr[] exprs() throws IOException {
+            Ir.Expr[] xs = new Ir.Expr[in.readInt()];
+            for (int i = 0; i < xs.length; i++) xs[i] = expr();
+            return xs;
+        }
+
+        private VarRef ref() throws IOException {
+            VarRef.Kind kind = VarRef.Kind.values()[in.readByte()];
+            int slot = in.readInt();
+            String name = in.readUTF();
+            return new VarRef(kind, slot, name, str());
+        }
+
+        private CallSite callSite() throws IOException {
+            CallSite site = new CallSite(in.readUTF(), in.readUTF(), classRef());
+            program.callSites.add(site);
+            return site;
+        }
+
+        private FieldSite fieldSite() throws IOException {
+            String name = in.readUTF();
+            return new FieldSite(name, classRef());
+        }
+
+        private ClassDef classRef() throws IOException {
+            int i = in.readInt();
+            return i < 0 ? null : classes.get(i);
+        }
+
+        private String str() throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+}
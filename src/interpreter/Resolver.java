@@ -0,0 +1,73 @@
+package interpreter;
+
+import java.util.*;
+
+/*
+ * Load-time name resolution. Used by the Lowerer once the type, var and method
+ * sections are loaded, so every variable reference is bound to a VarRef before
+ * execution and undefined names fail before the program starts. Methods do not
+ * nest, so a name is either in the active frame (params), a field of self
+ * (inherited ones included), or a global.
+ */
+public final class Resolver {
+
+    private final Program program;
+
+    // scope of the body currently being resolved (null cls = main block)
+    private ClassDef cls;
+    private ClassDef.MethodInfo method;
+    private Map<String, Integer> params = Map.of();
+
+    public Resolver(Program program) {
+        this.program = program;
+    }
+
+    public void enter(ClassDef cd, ClassDef.MethodInfo mi) {
+        cls = cd;
+        method = mi;
+        params = new HashMap<>();
+        if (mi != null) {
+            for (int i = 0; i < mi.paramNames.size(); i++) params.put(mi.paramNames.get(i), i);
+        }
+    }
+
+    public boolean isClassName(String name) {
+        return program.classes.containsKey(name);
+    }
+
+    public ClassDef classNamed(String name) {
+        return program.classes.get(name);
+    }
+
+    // enclosing class of the body being resolved; null for the main block
+    public ClassDef currentClass() {
+        return cls;
+    }
+
+    public VarRef lookup(String name) {
+        if (method != null) {
+            if (method.isFunction && name.equalsIgnoreCase(method.methodName))
+                return new VarRef(VarRef.Kind.RESULT, 0, name, method.returnType);
+            Integer slot = params.get(name);
+            if (slot != null) return new VarRef(VarRef.Kind.LOCAL, slot, name, method.paramTypes.get(slot));
+            if (name.equalsIgnoreCase("self")) return new VarRef(VarRef.Kind.SELF, 0, name, cls.name);
+            Integer off = cls.fieldIndex.get(name);
+            if (off != null) {
+                // an inherited field is in the layout, but a private one is not reachable from here
+                ClassDef.Vis vis = cls.fieldVis[off];
+                if (!ClassDef.accessible(vis, cls, cls.fieldOwners[off]))
+                    throw new RuntimeException("Field access denied (" + vis + "): " + cls.fieldOwners[off].name + "." + name + " (in " + where() + ")");
+                return new VarRef(VarRef.Kind.FIELD, off, name, cls.fieldTypes.get(name));
+            }
+        }
+
+        Integer slot = program.globalSlots.get(name);
+        if (slot != null) return new VarRef(VarRef.Kind.GLOBAL, slot, name, program.globalTypes.get(name));
+
+        throw new RuntimeException("Undefined variable: " + name + " (in " + where() + ")");
+    }
+
+    public String where() {
+        return method == null ? "main block" : cls.name + "." + method.methodName;
+    }
+}
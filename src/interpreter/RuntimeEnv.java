@@ -1,65 +1,87 @@
 package interpreter;
 
-import java.util.*;
+import java.util.Arrays;
 
+/*
+ * State of one execution of a Program: the activation-record stack, the slot
+ * arrays all records keep their params, temporaries and loop counters in, and
+ * the globals.
+ * Both stacks grow on demand, so call depth is bounded by the heap rather
+ * than the Java thread stack. The bottom record is the main block.
+ */
 public final class RuntimeEnv {
-    public final Map<String, ClassDef> classes = new HashMap<>();
-    public final Deque<Frame> stack = new ArrayDeque<>();
+    public final Program program;
+    public final Value[] globals;
 
-    // execution context for encapsulation + self
-    public final Deque<ClassDef> classCtx = new ArrayDeque<>();
-    public final Deque<ObjectInstance> selfCtx = new ArrayDeque<>();
+    public Frame[] records = new Frame[16];
+    public int depth = 0;
+    public Value[] slots = new Value[256];
+    public int[] ints = new int[256]; // same indexing as slots; for-loop counters and limits
 
-    public RuntimeEnv() {
-        stack.push(new Frame()); // global frame
+    public RuntimeEnv(Program program) {
+        this.program = program;
+        this.globals = program.initialGlobals();
+        push(Frame.MAIN, null, null, null, program.mainCode, 0, -1);
     }
 
     public Frame frame() {
-        return stack.peek();
+        return records[depth - 1];
     }
 
-    public void pushFrame(Frame f) {
-        stack.push(f);
-    }
+    public Frame push(int kind, ClassDef.MethodInfo mi, ClassDef cls, ObjectInstance self, Code code, int base, int dest) {
+        if (depth == records.length) records = Arrays.copyOf(records, depth * 2);
+        Frame f = records[depth];
+        if (f == null) f = records[depth] = new Frame();
+        depth++;
 
-    public void popFrame() {
-        stack.pop();
+        f.kind = kind;
+        f.method = mi;
+        f.cls = cls;
+        f.self = self;
+        f.code = code;
+        f.pc = 0;
+        f.base = base;
+        f.dest = dest;
+        if (code != null) ensureSlots(base + code.frameSize);
+        return f;
     }
 
-    public void declareVar(String name, Value init) {
-        frame().vars.put(name, init);
+    public void pop() {
+        Frame f = records[--depth];
+        f.self = null; // do not keep dead objects reachable from the record pool
     }
 
-    public Value getVar(String name) {
-        for (Frame f : stack) {
-            if (f.vars.containsKey(name)) return f.vars.get(name);
+    public void ensureSlots(int size) {
+        if (size > slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(size, slots.length * 2));
+            ints = Arrays.copyOf(ints, slots.length);
         }
-        throw new RuntimeException("Undefined variable: " + name);
     }
 
-    public boolean isDeclaredSomewhere(String name) {
-        for (Frame f : stack) {
-            if (f.vars.containsKey(name)) return true;
-        }
-        return false;
+    public Value load(VarRef r) {
+        return switch (r.kind) {
+            case LOCAL -> slots[frame().base + r.slot];
+            case GLOBAL -> globals[r.slot];
+            case FIELD -> currentSelf().fields[r.slot];
+            case SELF -> Value.ofObj(currentSelf());
+            // any store to the result returns, so a read always sees the default
+            case RESULT -> Value.ofInt(0);
+        };
     }
 
-    public void setVar(String name, Value v) {
-        for (Frame f : stack) {
-            if (f.vars.containsKey(name)) {
-                f.vars.put(name, v);
-                return;
-            }
+    public void store(VarRef r, Value v) {
+        switch (r.kind) {
+            case LOCAL -> slots[frame().base + r.slot] = v;
+            case GLOBAL -> globals[r.slot] = v;
+            case FIELD -> currentSelf().fields[r.slot] = v;
+            case RESULT -> throw new IllegalStateException("result stores are linearized to RETURN_VALUE");
+            case SELF -> throw new RuntimeException("Cannot assign to self");
         }
-        throw new RuntimeException("Assignment to undeclared variable: " + name);
-    }
-
-    public boolean inClassContext(ClassDef cd) {
-        return !classCtx.isEmpty() && classCtx.peek() == cd;
     }
 
     public ObjectInstance currentSelf() {
-        if (selfCtx.isEmpty()) throw new RuntimeException("No 'self' in current context");
-        return selfCtx.peek();
+        ObjectInstance self = frame().self;
+        if (self == null) throw new RuntimeException("No 'self' in current context");
+        return self;
     }
 }
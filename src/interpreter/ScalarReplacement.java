@@ -0,0 +1,553 @@
+package interpreter;
+
+import java.util.*;
+
+/*
+ * Escape analysis and scalar replacement, run by the Optimizer. It looks for an
+ * object that lives and dies within one statement list:
+ *
+ *   t := TTemp.Create(...);  ...  x := t.Compute(...);  ...  t.Destroy();
+ *
+ * The object must not escape. Between Create and Destroy, t may only be the
+ * receiver of statement-level calls (`t.M(...)` or `x := t.M(...)`) or the base
+ * of field accesses. The bodies of those methods may not use self except
+ * through its fields, and may not call methods on self. Every other mention of
+ * t anywhere in the program rules t out: for a global that includes every
+ * method body, so no other code can see the object. A window on a global also
+ * may not call anything once its own calls are inlined: the callee could
+ * reassign the global in a window of its own, which the caller would then see.
+ *
+ * The object is then never allocated. Each of its fields becomes a slot of the
+ * enclosing frame, and the constructor, method and destructor bodies are
+ * inlined with their arguments bound to fresh slots. Calls are bound exactly as
+ * CallSite would bind them for the created class, including visibility; a call
+ * that would fail at run time is left alone, so it still fails the same way.
+ * Classes with static array fields are skipped (their storage is allocated per
+ * object).
+ */
+final class ScalarReplacement {
+
+    private final Program program;
+
+    ScalarReplacement(Program program) {
+        this.program = program;
+    }
+
+    private static final class NotReplaceable extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        NotReplaceable() { super(null, null, false, false); }
+    }
+
+    private static final NotReplaceable NOT_REPLACEABLE = new NotReplaceable();
+
+    // a body being rewritten: its root and the params its frame starts with
+    private static final class Body {
+        final ClassDef.MethodInfo method; // null for the main block
+        Ir.Stmt root;
+
+        Body(ClassDef.MethodInfo method, Ir.Stmt root) {
+            this.method = method;
+            this.root = root;
+        }
+
+        int params() {
+            return method == null ? 0 : method.paramNames.size();
+        }
+    }
+
+    void run() {
+        List<Body> bodies = new ArrayList<>();
+        for (ClassDef cd : program.classes.values()) {
+            for (ClassDef.MethodInfo mi : cd.methods.values()) {
+                if (mi.body != null) bodies.add(new Body(mi, mi.body));
+            }
+        }
+        bodies.add(new Body(null, program.main));
+
+        // one candidate variable at a time: each rewrite changes the bodies the next one starts from
+        for (Body b : bodies) {
+            for (VarRef v : createdIn(b.root)) {
+                if (v.kind == VarRef.Kind.GLOBAL) tryGlobal(v, bodies);
+                else if (v.kind == VarRef.Kind.LOCAL) tryLocal(v, b);
+            }
+        }
+
+        for (Body b : bodies) {
+            if (b.method != null) b.method.body = b.root;
+            else program.main = b.root;
+        }
+    }
+
+    // A global is replaced in every body at once, and only if no body mentions it outside a window
+    // and no window calls out
+    private void tryGlobal(VarRef v, List<Body> bodies) {
+        Ir.Stmt[] rewritten = new Ir.Stmt[bodies.size()];
+        try {
+            for (int i = 0; i < bodies.size(); i++) {
+                Body b = bodies.get(i);
+                Rewrite r = new Rewrite(v, Linearizer.frameSlots(b.root, b.params()));
+                rewritten[i] = r.stmt(b.root);
+                if (r.windowCalls || mentions(rewritten[i], v)) return;
+            }
+        } catch (NotReplaceable ex) {
+            return;
+        }
+        for (int i = 0; i < bodies.size(); i++) bodies.get(i).root = rewritten[i];
+    }
+
+    private void tryLocal(VarRef v, Body b) {
+        try {
+            Ir.Stmt r = new Rewrite(v, Linearizer.frameSlots(b.root, b.params())).stmt(b.root);
+            if (!mentions(r, v)) b.root = r;
+        } catch (NotReplaceable ex) {
+            // left as it was
+        }
+    }
+
+    /* ===================== REWRITING ===================== */
+
+    // Rewrites every window of one variable in one body; slots for fields and arguments start at nextSlot
+    private final class Rewrite {
+        private final VarRef v;
+        private int nextSlot;
+        boolean windowCalls = false; // some window still calls a method or constructor
+
+        Rewrite(VarRef v, int nextSlot) {
+            this.v = v;
+            this.nextSlot = nextSlot;
+        }
+
+        private int slot() {
+            return nextSlot++;
+        }
+
+        // outside windows: only looks for windows, in loop bodies too
+        Ir.Stmt stmt(Ir.Stmt s) {
+            if (s instanceof Ir.Block b) return new Ir.Block(list(b.body));
+            if (s instanceof Ir.While w) return new Ir.While(w.cond, stmt(w.body));
+            if (s instanceof Ir.For f) return new Ir.For(f.var, f.from, f.limit, f.down, f.slot, stmt(f.body), f.sync);
+            return s;
+        }
+
+        private List<Ir.Stmt> list(Ir.Stmt[] body) {
+            List<Ir.Stmt> out = new ArrayList<>();
+            for (int i = 0; i < body.length; i++) {
+                int end = body[i] instanceof Ir.Assign a && same(a.target, v) && a.value instanceof Ir.NewObject ? windowEnd(body, i) : -1;
+                if (end < 0) {
+                    out.add(stmt(body[i]));
+                    continue;
+                }
+                int start = out.size();
+                Window w = new Window((Ir.NewObject) ((Ir.Assign) body[i]).value);
+                w.create(out);
+                for (int j = i + 1; j < end; j++) w.stmt(body[j], out);
+                w.destroy((Ir.InstanceCall) ((Ir.ExprStmt) body[end]).expr, out);
+                windowCalls |= calls(out.subList(start, out.size()));
+                i = end;
+            }
+            return out;
+        }
+
+        // index of the first "v.Destroy()" after a create at i, or -1 if v is created again first
+        private int windowEnd(Ir.Stmt[] body, int i) {
+            ClassDef cls = ((Ir.NewObject) ((Ir.Assign) body[i]).value).cls;
+            String dtor = cls.destructor != null ? cls.destructor.methodName : "Destroy"; // as CallSite binds it
+            for (int j = i + 1; j < body.length; j++) {
+                if (body[j] instanceof Ir.Assign a && same(a.target, v)) return -1;
+                if (body[j] instanceof Ir.ExprStmt es && es.expr instanceof Ir.InstanceCall c && same(c.receiver, v)
+                        && c.site.method.equalsIgnoreCase(dtor)) return j;
+            }
+            return -1;
+        }
+
+        /* ----- one object between its Create and its Destroy ----- */
+
+        private final class Window {
+            private final Ir.NewObject create;
+            private final ClassDef cls;
+            private final int[] fieldSlots;
+
+            Window(Ir.NewObject create) {
+                this.create = create;
+                this.cls = create.cls;
+                if (cls.hasArrayFields) {
+                    for (IntArray.Type t : cls.fieldArrays) if (t != null && !t.dynamic()) throw NOT_REPLACEABLE;
+                }
+                this.fieldSlots = new int[cls.fieldNames.length];
+                for (int i = 0; i < fieldSlots.length; i++) fieldSlots[i] = slot();
+            }
+
+            // the field's slot, named as the code that mentions it would name it
+            private VarRef field(int offset, String name) {
+                return new VarRef(VarRef.Kind.LOCAL, fieldSlots[offset], name, cls.fieldTypes.get(cls.fieldNames[offset]));
+            }
+
+            // v.f from outside the class's methods, with the visibility FieldSite would check
+            private VarRef field(FieldSite site) {
+                Integer off = cls.fieldIndex.get(site.name);
+                if (off == null || !ClassDef.accessible(cls.fieldVis[off], site.context, cls.fieldOwners[off])) throw NOT_REPLACEABLE;
+                return field(off, v.name + "." + site.name);
+            }
+
+            void create(List<Ir.Stmt> out) {
+                Inline in = new Inline(create.ctor, create.args.length);
+                for (int i = 0; i < create.args.length; i++) out.add(in.bindArg(i, expr(create.args[i])));
+                for (int i = 0; i < fieldSlots.length; i++) {
+                    Value initial = cls.fieldArrays[i] != null ? Value.nil() : Value.ofInt(0);
+                    out.add(new Ir.Assign(field(i, cls.fieldNames[i]), new Ir.Const(initial)));
+                }
+                in.body(null, out);
+            }
+
+            void destroy(Ir.InstanceCall c, List<Ir.Stmt> out) {
+                call(c, null, out);
+            }
+
+            // a statement of the window, with v's fields and calls replaced
+            void stmt(Ir.Stmt s, List<Ir.Stmt> out) {
+                if (s instanceof Ir.Block b) {
+                    for (Ir.Stmt inner : b.body) stmt(inner, out);
+                } else if (s instanceof Ir.Assign a) {
+                    if (same(a.target, v)) throw NOT_REPLACEABLE;
+                    if (a.value instanceof Ir.InstanceCall c && same(c.receiver, v)) call(c, a.target, out);
+                    else out.add(new Ir.Assign(a.target, expr(a.value)));
+                } else if (s instanceof Ir.FieldStore fs) {
+                    if (same(fs.base, v)) out.add(new Ir.Assign(field(fs.field), expr(fs.value)));
+                    else out.add(new Ir.FieldStore(fs.base, fs.field, expr(fs.value)));
+                } else if (s instanceof Ir.IndexStore is) {
+                    out.add(new Ir.IndexStore(expr(is.array), expr(is.index), expr(is.value), is.checked, is.name));
+                } else if (s instanceof Ir.ExprStmt es) {
+                    if (es.expr instanceof Ir.InstanceCall c && same(c.receiver, v)) call(c, null, out);
+                    else out.add(new Ir.ExprStmt(expr(es.expr)));
+                } else if (s instanceof Ir.While w) {
+                    out.add(new Ir.While(expr(w.cond), block(w.body)));
+                } else if (s instanceof Ir.For f) {
+                    if (same(f.var, v)) throw NOT_REPLACEABLE;
+                    out.add(new Ir.For(f.var, expr(f.from), expr(f.limit), f.down, f.slot, block(f.body), f.sync));
+                } else {
+                    throw NOT_REPLACEABLE;
+                }
+            }
+
+            private Ir.Stmt block(Ir.Stmt s) {
+                List<Ir.Stmt> out = new ArrayList<>();
+                stmt(s, out);
+                return new Ir.Block(out);
+            }
+
+            private Ir.Expr expr(Ir.Expr x) {
+                return new Mapper() {
+                    @Override
+                    Ir.Expr load(VarRef r) {
+                        if (same(r, v)) throw NOT_REPLACEABLE; // v as a value escapes
+                        return new Ir.Load(r);
+                    }
+
+                    @Override
+                    Ir.Expr fieldLoad(Ir.FieldLoad fl) {
+                        return same(fl.base, v) ? new Ir.Load(field(fl.field)) : fl;
+                    }
+
+                    @Override
+                    VarRef var(VarRef r) {
+                        if (same(r, v)) throw NOT_REPLACEABLE;
+                        return r;
+                    }
+
+                    @Override
+                    Ir.Expr loopVar(Ir.LoopVar lv) {
+                        return lv;
+                    }
+                }.expr(x);
+            }
+
+            // "dest := v.M(args)" (dest null for a statement call), bound as CallSite would bind it
+            private void call(Ir.InstanceCall c, VarRef dest, List<Ir.Stmt> out) {
+                int slot = cls.slotOf(c.site.method);
+                if (slot < 0) throw NOT_REPLACEABLE;
+                ClassDef.MethodInfo mi = cls.vtable[slot];
+                if (mi.body == null || mi == cls.constructor) throw NOT_REPLACEABLE;
+                if (!ClassDef.accessible(cls.vtableVis[slot], c.site.context, cls.vtableOwners[slot])) throw NOT_REPLACEABLE;
+                if (c.args.length != mi.paramNames.size()) throw NOT_REPLACEABLE;
+
+                Inline in = new Inline(mi, c.args.length);
+                for (int i = 0; i < c.args.length; i++) out.add(in.bindArg(i, expr(c.args[i])));
+                in.body(dest, out);
+            }
+
+            /* ----- one inlined body ----- */
+
+            private final class Inline {
+                private final ClassDef.MethodInfo mi;
+                private final VarRef[] params;
+                private final Map<Integer, Integer> loopSlots = new HashMap<>();
+
+                Inline(ClassDef.MethodInfo mi, int argc) {
+                    this.mi = mi;
+                    this.params = new VarRef[argc];
+                    if (argc != mi.paramNames.size()) throw NOT_REPLACEABLE;
+                }
+
+                Ir.Stmt bindArg(int i, Ir.Expr value) {
+                    params[i] = new VarRef(VarRef.Kind.LOCAL, slot(), mi.paramNames.get(i), mi.paramTypes.get(i));
+                    return new Ir.Assign(params[i], value);
+                }
+
+                // the callee's statements; a final "Name := x" becomes "dest := x"
+                void body(VarRef dest, List<Ir.Stmt> out) {
+                    Ir.Stmt[] body = mi.body instanceof Ir.Block b ? b.body : new Ir.Stmt[]{mi.body};
+                    Ir.Expr result = null;
+                    int n = body.length;
+                    if (n > 0 && body[n - 1] instanceof Ir.Assign a && a.target.kind == VarRef.Kind.RESULT) {
+                        result = a.value;
+                        n--;
+                    }
+                    for (int i = 0; i < n; i++) out.add(stmt(body[i]));
+                    if (result != null) {
+                        // evaluated even when unused: it may fail
+                        VarRef target = dest != null ? dest : new VarRef(VarRef.Kind.LOCAL, slot(), mi.methodName, "integer");
+                        out.add(new Ir.Assign(target, expr(result)));
+                    } else if (dest != null) {
+                        out.add(new Ir.Assign(dest, new Ir.Const(mi.isFunction ? Value.ofInt(0) : Value.nil())));
+                    }
+                }
+
+                private Ir.Stmt stmt(Ir.Stmt s) {
+                    if (s instanceof Ir.Block b) {
+                        List<Ir.Stmt> out = new ArrayList<>();
+                        for (Ir.Stmt inner : b.body) out.add(stmt(inner));
+                        return new Ir.Block(out);
+                    }
+                    if (s instanceof Ir.Assign a) return new Ir.Assign(var(a.target), expr(a.value));
+                    if (s instanceof Ir.FieldStore fs) {
+                        if (fs.base.kind == VarRef.Kind.SELF) return new Ir.Assign(self(fs.field), expr(fs.value));
+                        return new Ir.FieldStore(var(fs.base), fs.field, expr(fs.value));
+                    }
+                    if (s instanceof Ir.IndexStore is) return new Ir.IndexStore(expr(is.array), expr(is.index), expr(is.value), is.checked, is.name);
+                    if (s instanceof Ir.ExprStmt es) return new Ir.ExprStmt(expr(es.expr));
+                    if (s instanceof Ir.While w) return new Ir.While(expr(w.cond), stmt(w.body));
+                    if (s instanceof Ir.For f) {
+                        return new Ir.For(var(f.var), expr(f.from), expr(f.limit), f.down, loopSlot(f.slot), stmt(f.body), f.sync);
+                    }
+                    throw NOT_REPLACEABLE;
+                }
+
+                private int loopSlot(int slot) {
+                    return loopSlots.computeIfAbsent(slot, s -> {
+                        int at = slot();
+                        slot(); // the limit
+                        return at;
+                    });
+                }
+
+                // self.f inside the class: same offsets, since the method belongs to cls or an ancestor
+                private VarRef self(FieldSite site) {
+                    Integer off = cls.fieldIndex.get(site.name);
+                    if (off == null || !ClassDef.accessible(cls.fieldVis[off], site.context, cls.fieldOwners[off])) throw NOT_REPLACEABLE;
+                    return field(off, "self." + site.name);
+                }
+
+                private VarRef var(VarRef r) {
+                    return switch (r.kind) {
+                        case FIELD -> field(r.slot, r.name);
+                        case LOCAL -> {
+                            if (r.slot >= params.length) throw NOT_REPLACEABLE;
+                            yield new VarRef(VarRef.Kind.LOCAL, params[r.slot].slot, r.name, r.typeName);
+                        }
+                        case GLOBAL -> r;
+                        // self as a value escapes; result stores other than the last return early
+                        case SELF, RESULT -> throw NOT_REPLACEABLE;
+                    };
+                }
+
+                private Ir.Expr expr(Ir.Expr x) {
+                    return new Mapper() {
+                        @Override
+                        Ir.Expr load(VarRef r) {
+                            if (r.kind == VarRef.Kind.RESULT) return new Ir.Const(Value.ofInt(0)); // as in RuntimeEnv.load
+                            return new Ir.Load(var(r));
+                        }
+
+                        @Override
+                        Ir.Expr fieldLoad(Ir.FieldLoad fl) {
+                            if (fl.base.kind == VarRef.Kind.SELF) return new Ir.Load(self(fl.field));
+                            return new Ir.FieldLoad(var(fl.base), fl.field);
+                        }
+
+                        @Override
+                        VarRef var(VarRef r) {
+                            return Inline.this.var(r);
+                        }
+
+                        @Override
+                        Ir.Expr loopVar(Ir.LoopVar lv) {
+                            return new Ir.LoopVar(loopSlot(lv.slot), var(lv.var));
+                        }
+                    }.expr(x);
+                }
+            }
+        }
+    }
+
+    /* ===================== EXPRESSION MAPPING ===================== */
+
+    // Copies an expression, letting the subclass decide what each variable reference becomes
+    private abstract static class Mapper {
+        abstract Ir.Expr load(VarRef r);
+
+        abstract Ir.Expr fieldLoad(Ir.FieldLoad fl);
+
+        // a variable named by a call receiver, readln or similar
+        abstract VarRef var(VarRef r);
+
+        abstract Ir.Expr loopVar(Ir.LoopVar lv);
+
+        Ir.Expr expr(Ir.Expr x) {
+            if (x instanceof Ir.Const) return x;
+            if (x instanceof Ir.Load l) return load(l.ref);
+            if (x instanceof Ir.FieldLoad fl) return fieldLoad(fl);
+            if (x instanceof Ir.LoopVar lv) return loopVar(lv);
+            if (x instanceof Ir.Arith a) return new Ir.Arith(a.op, expr(a.left), expr(a.right));
+            if (x instanceof Ir.Compare c) return new Ir.Compare(c.op, expr(c.left), expr(c.right));
+            if (x instanceof Ir.Logic g) return new Ir.Logic(g.and, expr(g.left), expr(g.right));
+            if (x instanceof Ir.Not n) return new Ir.Not(expr(n.operand));
+            if (x instanceof Ir.Index ix) return new Ir.Index(expr(ix.array), expr(ix.index), ix.checked, ix.name);
+            if (x instanceof Ir.ArrayCall c) return new Ir.ArrayCall(c.fn, exprs(c.args));
+            if (x instanceof Ir.Writeln w) return new Ir.Writeln(exprs(w.args));
+            if (x instanceof Ir.Readln r) return new Ir.Readln(var(r.target));
+            if (x instanceof Ir.NewObject n) return new Ir.NewObject(n.cls, n.ctor, exprs(n.args));
+            if (x instanceof Ir.InstanceCall c) {
+                // arguments first, as they are evaluated before the receiver is looked at
+                Ir.Expr[] args = exprs(c.args);
+                return new Ir.InstanceCall(var(c.receiver), c.site, args);
+            }
+            throw NOT_REPLACEABLE;
+        }
+
+        private Ir.Expr[] exprs(Ir.Expr[] xs) {
+            Ir.Expr[] out = new Ir.Expr[xs.length];
+            for (int i = 0; i < xs.length; i++) out[i] = expr(xs[i]);
+            return out;
+        }
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private static boolean same(VarRef a, VarRef b) {
+        return a.kind == b.kind && a.slot == b.slot;
+    }
+
+    // variables assigned a new object somewhere in s
+    private static List<VarRef> createdIn(Ir.Stmt s) {
+        List<VarRef> out = new ArrayList<>();
+        collectCreated(s, out);
+        return out;
+    }
+
+    private static void collectCreated(Ir.Stmt s, List<VarRef> out) {
+        if (s instanceof Ir.Block b) {
+            for (Ir.Stmt inner : b.body) collectCreated(inner, out);
+        } else if (s instanceof Ir.While w) {
+            collectCreated(w.body, out);
+        } else if (s instanceof Ir.For f) {
+            collectCreated(f.body, out);
+        } else if (s instanceof Ir.Assign a && a.value instanceof Ir.NewObject
+                && (a.target.kind == VarRef.Kind.GLOBAL || a.target.kind == VarRef.Kind.LOCAL)) {
+            for (VarRef r : out) if (same(r, a.target)) return;
+            out.add(a.target);
+        }
+    }
+
+    // whether s mentions v anywhere
+    private static boolean mentions(Ir.Stmt s, VarRef v) {
+        boolean[] found = {false};
+        Mapper probe = new Mapper() {
+            @Override
+            Ir.Expr load(VarRef r) {
+                found[0] |= same(r, v);
+                return new Ir.Load(r);
+            }
+
+            @Override
+            Ir.Expr fieldLoad(Ir.FieldLoad fl) {
+                found[0] |= same(fl.base, v);
+                return fl;
+            }
+
+            @Override
+            VarRef var(VarRef r) {
+                found[0] |= same(r, v);
+                return r;
+            }
+
+            @Override
+            Ir.Expr loopVar(Ir.LoopVar lv) {
+                found[0] |= same(lv.var, v);
+                return lv;
+            }
+        };
+        walk(s, probe, found);
+        return found[0];
+    }
+
+    // whether any of stmts calls a method or constructor
+    private static boolean calls(List<Ir.Stmt> stmts) {
+        boolean[] found = {false};
+        Mapper probe = new Mapper() {
+            @Override
+            Ir.Expr expr(Ir.Expr x) {
+                found[0] |= x instanceof Ir.InstanceCall || x instanceof Ir.NewObject;
+                return super.expr(x);
+            }
+
+            @Override
+            Ir.Expr load(VarRef r) {
+                return new Ir.Load(r);
+            }
+
+            @Override
+            Ir.Expr fieldLoad(Ir.FieldLoad fl) {
+                return fl;
+            }
+
+            @Override
+            VarRef var(VarRef r) {
+                return r;
+            }
+
+            @Override
+            Ir.Expr loopVar(Ir.LoopVar lv) {
+                return lv;
+            }
+        };
+        for (Ir.Stmt s : stmts) walk(s, probe, found);
+        return found[0];
+    }
+
+    private static void walk(Ir.Stmt s, Mapper probe, boolean[] found) {
+        if (s instanceof Ir.Block b) {
+            for (Ir.Stmt inner : b.body) walk(inner, probe, found);
+        } else if (s instanceof Ir.Assign a) {
+            probe.var(a.target);
+            probe.expr(a.value);
+        } else if (s instanceof Ir.FieldStore fs) {
+            probe.var(fs.base);
+            probe.expr(fs.value);
+        } else if (s instanceof Ir.IndexStore is) {
+            probe.expr(is.array);
+            probe.expr(is.index);
+            probe.expr(is.value);
+        } else if (s instanceof Ir.ExprStmt es) {
+            probe.expr(es.expr);
+        } else if (s instanceof Ir.While w) {
+            probe.expr(w.cond);
+            walk(w.body, probe, found);
+        } else if (s instanceof Ir.For f) {
+            probe.var(f.var);
+            probe.expr(f.from);
+            probe.expr(f.limit);
+            walk(f.body, probe, found);
+        }
+    }
+}
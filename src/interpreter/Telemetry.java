@@ -0,0 +1,314 @@
+package interpreter;
+
+import jdk.jfr.*;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * JDK Flight Recorder events and JMX counters for one execution, enabled with
+ * --telemetry (embedders: Engine.enableTelemetry). The Engine calls enter/exit
+ * around every constructor, method and destructor body, allocated() for every
+ * new object and destroyed() when a destructor returns, and routes writeln and
+ * readln through here; with no telemetry attached those are a single null
+ * check each.
+ *
+ * Events, all without stack traces:
+ *   interpreter.Call  kind, class and method of one body, threshold 1 ms
+ *   interpreter.IO    one writeln or readln with its byte count, threshold 1 ms
+ *   interpreter.Run   one whole run with its objects created and those it left
+ *                     undestroyed, per class; every run is recorded
+ * Thresholds are ordinary JFR settings, e.g.
+ *   -XX:StartFlightRecording:+interpreter.Call#threshold=100us,filename=run.jfr
+ * (the + is needed because the events are not known when the JVM starts) or
+ * a .jfc file made with `jfr configure`. A disabled event costs no allocation.
+ *
+ * Counters are cumulative over every run in the JVM (a daemon or a batch
+ * included) and are published as the MXBean interpreter:type=Telemetry, which
+ * is registered the first time a Telemetry is created. Live objects per class
+ * name are objects created minus destructor calls in the runs still going;
+ * when a run ends, whatever it left undestroyed is taken out of them and
+ * reported for that run instead (leftovers(), the Run event, and the
+ * cumulative ObjectsLeftUndestroyed). So a live count that keeps growing is a
+ * leak in a running script, not earlier runs' garbage, and two programs that
+ * both declare a class TNode only share a count while both are running.
+ * Calls the optimizer inlined and objects it scalar-replaced run no body and
+ * allocate nothing, so they are neither recorded nor counted.
+ */
+public final class Telemetry {
+
+    /* ===================== JFR EVENTS ===================== */
+
+    @Name("interpreter.Call")
+    @Label("Interpreter Call")
+    @Category("Interpreter")
+    @Description("A constructor, method or destructor body run by the interpreter")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class CallEvent extends Event {
+        @Label("Kind")
+        String kind;
+        @Label("Class")
+        String className;
+        @Label("Method")
+        String methodName;
+    }
+
+    @Name("interpreter.IO")
+    @Label("Interpreter I/O")
+    @Category("Interpreter")
+    @Description("One writeln or readln; readln time includes waiting for input")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static final class IOEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Values")
+        int values;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("interpreter.Run")
+    @Label("Interpreter Run")
+    @Category("Interpreter")
+    @Description("One run of a program, with the objects it left undestroyed")
+    @StackTrace(false)
+    static final class RunEvent extends Event {
+        @Label("Objects Created")
+        long created;
+        @Label("Objects Left Undestroyed")
+        long leftUndestroyed;
+        @Label("Left Undestroyed By Class")
+        String leftovers;
+    }
+
+    private static final EventType CALL = EventType.getEventType(CallEvent.class);
+    private static final EventType IO = EventType.getEventType(IOEvent.class);
+    private static final EventType RUN = EventType.getEventType(RunEvent.class);
+
+    /* ===================== JMX COUNTERS ===================== */
+
+    public interface TelemetryMXBean {
+        long getRuns();
+        long getActiveRuns();
+        long getConstructorCalls();
+        long getMethodCalls();
+        long getDestructorCalls();
+        long getObjectsCreated();
+        long getObjectsDestroyed();
+        long getObjectsLeftUndestroyed();
+        Map<String, Long> getLiveObjects();
+        long getLinesWritten();
+        long getBytesWritten();
+        long getIntegersRead();
+        long getBytesRead();
+    }
+
+    private static final class Counters implements TelemetryMXBean {
+        final LongAdder runs = new LongAdder(), activeRuns = new LongAdder();
+        final LongAdder ctors = new LongAdder(), methods = new LongAdder(), dtors = new LongAdder();
+        final LongAdder created = new LongAdder(), destroyed = new LongAdder(), leftUndestroyed = new LongAdder();
+        final ConcurrentHashMap<String, LongAdder> live = new ConcurrentHashMap<>();
+        final LongAdder lines = new LongAdder(), bytesOut = new LongAdder();
+        final LongAdder ints = new LongAdder(), bytesIn = new LongAdder();
+
+        public long getRuns() { return runs.sum(); }
+        public long getActiveRuns() { return activeRuns.sum(); }
+        public long getConstructorCalls() { return ctors.sum(); }
+        public long getMethodCalls() { return methods.sum(); }
+        public long getDestructorCalls() { return dtors.sum(); }
+        public long getObjectsCreated() { return created.sum(); }
+        public long getObjectsDestroyed() { return destroyed.sum(); }
+        public long getObjectsLeftUndestroyed() { return leftUndestroyed.sum(); }
+        public long getLinesWritten() { return lines.sum(); }
+        public long getBytesWritten() { return bytesOut.sum(); }
+        public long getIntegersRead() { return ints.sum(); }
+        public long getBytesRead() { return bytesIn.sum(); }
+
+        public Map<String, Long> getLiveObjects() {
+            Map<String, Long> out = new TreeMap<>();
+            live.forEach((name, n) -> {
+                long v = n.sum();
+                if (v != 0) out.put(name, v);
+            });
+            return out;
+        }
+    }
+
+    public static final String OBJECT_NAME = "interpreter:type=Telemetry";
+    private static final Counters COUNTERS = new Counters();
+    private static boolean registered = false;
+
+    private static synchronized void register() {
+        if (registered) return;
+        registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(COUNTERS, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException ex) {
+            // another class loader got there first; its counters are the ones published
+        } catch (JMException ex) {
+            throw new RuntimeException("Cannot register " + OBJECT_NAME + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    public static TelemetryMXBean counters() {
+        return COUNTERS;
+    }
+
+    /* ===================== STATE ===================== */
+
+    // call events in flight, indexed by depth (0 = main block, never used); null where Call was disabled
+    private CallEvent[] events = new CallEvent[64];
+    private int depth = 0;
+
+    // this execution's objects of one class: its entry in COUNTERS.live, and how much of that entry is its own
+    private static final class Live {
+        final LongAdder shared;
+        long count;
+
+        Live(LongAdder shared) {
+            this.shared = shared;
+        }
+    }
+
+    // by ClassDef, so counting an object is no map lookup by name
+    private final Map<ClassDef, Live> live = new IdentityHashMap<>();
+    private long created = 0;
+    private Map<String, Long> leftovers = Map.of();
+    private RunEvent run = null;
+
+    public Telemetry() {
+        register();
+    }
+
+    // Objects the last finished run left undestroyed, by class name; empty while running
+    public Map<String, Long> leftovers() {
+        return leftovers;
+    }
+
+    /* ===================== HOOKS (called by Engine) ===================== */
+
+    void start() {
+        COUNTERS.runs.increment();
+        COUNTERS.activeRuns.increment();
+        created = 0;
+        leftovers = Map.of();
+        run = RUN.isEnabled() ? new RunEvent() : null;
+        if (run != null) run.begin();
+    }
+
+    // takes this run's leftovers out of the live counts, so they do not pile up across runs
+    void stop() {
+        Map<String, Long> left = new TreeMap<>();
+        long total = 0;
+        for (var e : live.entrySet()) {
+            Live l = e.getValue();
+            if (l.count == 0) continue;
+            l.shared.add(-l.count);
+            if (l.count > 0) {
+                left.put(e.getKey().name, l.count);
+                total += l.count;
+            }
+            l.count = 0;
+        }
+        COUNTERS.leftUndestroyed.add(total);
+        COUNTERS.activeRuns.decrement();
+        leftovers = Collections.unmodifiableMap(left);
+
+        if (run != null) {
+            run.created = created;
+            run.leftUndestroyed = total;
+            run.leftovers = left.toString();
+            run.commit();
+            run = null;
+        }
+    }
+
+    void enter(int kind, ClassDef.MethodInfo mi) {
+        switch (kind) {
+            case Frame.CTOR -> COUNTERS.ctors.increment();
+            case Frame.DTOR -> COUNTERS.dtors.increment();
+            default -> COUNTERS.methods.increment();
+        }
+        if (++depth == events.length) events = Arrays.copyOf(events, depth * 2);
+        CallEvent e = null;
+        if (CALL.isEnabled()) {
+            e = new CallEvent();
+            e.kind = kind == Frame.CTOR ? "constructor" : kind == Frame.DTOR ? "destructor" : "method";
+            e.className = mi.className;
+            e.methodName = mi.methodName;
+            e.begin();
+        }
+        events[depth] = e;
+    }
+
+    void exit() {
+        CallEvent e = events[depth];
+        events[depth--] = null;
+        if (e != null) e.commit(); // commit ends the event and drops it when under the threshold
+    }
+
+    void allocated(ClassDef cd) {
+        COUNTERS.created.increment();
+        created++;
+        Live l = live(cd);
+        l.shared.increment();
+        l.count++;
+    }
+
+    void destroyed(ClassDef cd) {
+        COUNTERS.destroyed.increment();
+        Live l = live(cd);
+        l.shared.decrement();
+        l.count--;
+    }
+
+    private Live live(ClassDef cd) {
+        Live l = live.get(cd);
+        if (l == null) {
+            l = new Live(COUNTERS.live.computeIfAbsent(cd.name, k -> new LongAdder()));
+            live.put(cd, l);
+        }
+        return l;
+    }
+
+    void writeln(ConsoleIO io, Value[] args) {
+        IOEvent e = IO.isEnabled() ? new IOEvent() : null;
+        if (e != null) e.begin();
+        long before = io.bytesWritten();
+        io.writeln(args);
+        long bytes = io.bytesWritten() - before;
+        int lines = Math.max(args.length, 1);
+        COUNTERS.lines.add(lines);
+        COUNTERS.bytesOut.add(bytes);
+        if (e != null) commit(e, "writeln", args.length, bytes);
+    }
+
+    int readInt(ConsoleIO io) {
+        IOEvent e = IO.isEnabled() ? new IOEvent() : null;
+        if (e != null) e.begin();
+        long before = io.bytesRead();
+        int v = io.readInt();
+        long bytes = io.bytesRead() - before;
+        COUNTERS.ints.increment();
+        COUNTERS.bytesIn.add(bytes);
+        if (e != null) commit(e, "readln", 1, bytes);
+        return v;
+    }
+
+    private static void commit(IOEvent e, String operation, int values, long bytes) {
+        e.end();
+        if (!e.shouldCommit()) return;
+        e.operation = operation;
+        e.values = values;
+        e.bytes = bytes;
+        e.commit();
+    }
+}
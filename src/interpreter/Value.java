@@ -1,32 +1,58 @@
 package interpreter;
 
 public final class Value {
-    public enum Kind { INT, OBJ, NIL }
+    public enum Kind { INT, OBJ, ARRAY, NIL }
+
+    // Values are immutable, so nil and small integers are shared instead of allocated per use
+    private static final Value NIL = new Value(Kind.NIL, 0, null, null);
+
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    private static final Value[] SMALL_INTS = new Value[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < SMALL_INTS.length; i++) SMALL_INTS[i] = new Value(Kind.INT, i + CACHE_LOW, null, null);
+    }
 
     public final Kind kind;
     private final int intVal;
     public final ObjectInstance objVal;
+    public final IntArray arrVal;
 
-    private Value(Kind k, int i, ObjectInstance o) {
+    private Value(Kind k, int i, ObjectInstance o, IntArray a) {
         this.kind = k;
         this.intVal = i;
         this.objVal = o;
+        this.arrVal = a;
     }
 
-    public static Value ofInt(int x) { return new Value(Kind.INT, x, null); }
-    public static Value ofObj(ObjectInstance o) { return new Value(Kind.OBJ, 0, o); }
-    public static Value nil() { return new Value(Kind.NIL, 0, null); }
+    public static Value ofInt(int x) {
+        if (x >= CACHE_LOW && x <= CACHE_HIGH) return SMALL_INTS[x - CACHE_LOW];
+        return new Value(Kind.INT, x, null, null);
+    }
+
+    public static Value ofObj(ObjectInstance o) { return new Value(Kind.OBJ, 0, o, null); }
+    public static Value ofArray(IntArray a) { return new Value(Kind.ARRAY, 0, null, a); }
+    public static Value nil() { return NIL; }
 
     public int asInt() {
         if (kind != Kind.INT) throw new RuntimeException("Expected integer, got " + kind);
         return intVal;
     }
 
+    // null for nil, which stands for an empty dynamic array
+    public IntArray asArray() {
+        if (kind == Kind.ARRAY) return arrVal;
+        if (kind != Kind.NIL) throw new RuntimeException("Expected array, got " + kind);
+        return null;
+    }
+
     @Override
     public String toString() {
         return switch (kind) {
             case INT -> Integer.toString(intVal);
             case OBJ -> "<object " + objVal.klass.name + ">";
+            case ARRAY -> "<array[" + arrVal.low + ".." + (arrVal.low + arrVal.data.length - 1) + "]>";
             case NIL -> "nil";
         };
     }
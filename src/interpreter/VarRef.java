@@ -0,0 +1,33 @@
+package interpreter;
+
+// Storage location a name was bound to by the Resolver.
+public final class VarRef {
+    public enum Kind {
+        LOCAL,   // slot in the active method frame (params)
+        GLOBAL,  // slot in the program's global var table
+        FIELD,   // bare field name inside a method body -> self.fields[slot]
+        SELF,    // the "self" keyword
+        RESULT   // function name used as its return value
+    }
+
+    public final Kind kind;
+    public final int slot;
+    public final String name;
+    public final String typeName; // declared type: "integer", a class name, or null if none
+
+    public VarRef(Kind kind, int slot, String name, String typeName) {
+        this.kind = kind;
+        this.slot = slot;
+        this.name = name;
+        this.typeName = typeName;
+    }
+
+    public boolean isInteger() {
+        return typeName != null && typeName.equalsIgnoreCase("integer");
+    }
+
+    @Override
+    public String toString() {
+        return kind + "(" + name + (kind == Kind.SELF || kind == Kind.RESULT ? "" : "@" + slot) + ")";
+    }
+}
@@ -0,0 +1,92 @@
+package interpreter;
+
+/*
+ * Load-time encapsulation check over every lowered body. Visibility depends
+ * only on the lexical class of an access, so private/protected violations
+ * against a receiver's declared type are rejected here, before the program
+ * runs. Passing sites get their FieldSite/CallSite cache primed for that type,
+ * so the hot path never re-checks. A receiver whose declared type is not a
+ * known class is left to the check on the sites' miss path.
+ */
+public final class Verifier {
+
+    private final Program program;
+
+    public Verifier(Program program) {
+        this.program = program;
+    }
+
+    public void verify(Ir.Stmt body) {
+        stmt(body);
+    }
+
+    private void stmt(Ir.Stmt s) {
+        if (s instanceof Ir.Block b) {
+            for (Ir.Stmt inner : b.body) stmt(inner);
+        } else if (s instanceof Ir.Assign a) {
+            expr(a.value);
+        } else if (s instanceof Ir.FieldStore fs) {
+            expr(fs.value);
+            ClassDef cd = declaredClass(fs.base);
+            if (cd != null) fs.field.offsetIn(cd);
+        } else if (s instanceof Ir.ExprStmt es) {
+            expr(es.expr);
+        } else if (s instanceof Ir.IndexStore is) {
+            expr(is.value);
+            expr(is.index);
+            expr(is.array);
+        } else if (s instanceof Ir.While w) {
+            expr(w.cond);
+            stmt(w.body);
+        } else if (s instanceof Ir.For f) {
+            expr(f.from);
+            expr(f.limit);
+            stmt(f.body);
+        }
+    }
+
+    private void expr(Ir.Expr x) {
+        if (x instanceof Ir.FieldLoad fl) {
+            ClassDef cd = declaredClass(fl.base);
+            if (cd != null) fl.field.offsetIn(cd);
+        } else if (x instanceof Ir.Arith a) {
+            expr(a.left);
+            expr(a.right);
+        } else if (x instanceof Ir.Compare c) {
+            expr(c.left);
+            expr(c.right);
+        } else if (x instanceof Ir.Logic l) {
+            expr(l.left);
+            expr(l.right);
+        } else if (x instanceof Ir.Not n) {
+            expr(n.operand);
+        } else if (x instanceof Ir.Index ix) {
+            expr(ix.index);
+            expr(ix.array);
+        } else if (x instanceof Ir.ArrayCall c) {
+            args(c.args);
+        } else if (x instanceof Ir.NewObject n) {
+            args(n.args);
+        } else if (x instanceof Ir.InstanceCall c) {
+            args(c.args);
+            ClassDef cd = declaredClass(c.receiver);
+            if (cd != null) c.site.prime(cd);
+        } else if (x instanceof Ir.InlinedCall c) {
+            args(c.args);
+            c.site.prime(c.cls);
+            if (c.effect != null) stmt(c.effect);
+            if (c.value != null) expr(c.value);
+        } else if (x instanceof Ir.Writeln w) {
+            args(w.args);
+        }
+    }
+
+    private void args(Ir.Expr[] xs) {
+        for (Ir.Expr x : xs) expr(x);
+    }
+
+    private ClassDef declaredClass(VarRef base) {
+        if (base.isInteger()) throw new RuntimeException("Not an object: " + base.name);
+        return base.typeName == null ? null : program.classes.get(base.typeName);
+    }
+}
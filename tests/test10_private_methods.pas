@@ -0,0 +1,128 @@
+program Test10;
+
+type
+  IGreeter = interface
+    function Greet(): integer;
+  end;
+
+  TBase = class implements IGreeter
+  private:
+    function Secret(): integer;
+  protected:
+    function Hook(): integer;
+  public:
+    constructor Create();
+    function Greet(): integer;
+    function Reveal(): integer;
+  end;
+
+  { declares its own Secret: a new method, not an override of TBase's private one }
+  TChild = class(TBase)
+  public:
+    function Secret(): integer;
+    function Hook(): integer;
+  end;
+
+  { overrides TChild's public Secret, which is an ordinary virtual method }
+  TGrandChild = class(TChild)
+  public:
+    function Secret(): integer;
+  end;
+
+  { a private method that shares its name with a public inherited one does not replace it }
+  TQuiet = class(TBase)
+  private:
+    function Greet(): integer;
+  public:
+    function Both(): integer;
+  end;
+
+constructor TBase.Create();
+begin
+end;
+
+function TBase.Secret(): integer;
+begin
+  Secret := 1;
+end;
+
+function TBase.Hook(): integer;
+begin
+  Hook := 10;
+end;
+
+function TBase.Greet(): integer;
+begin
+  Greet := 100;
+end;
+
+{ Secret is TBase's private method whatever the receiver's class; Hook is virtual }
+function TBase.Reveal(): integer;
+begin
+  Reveal := self.Secret() + self.Hook();
+end;
+
+function TChild.Secret(): integer;
+begin
+  Secret := 2;
+end;
+
+function TChild.Hook(): integer;
+begin
+  Hook := 20;
+end;
+
+function TGrandChild.Secret(): integer;
+begin
+  Secret := 3;
+end;
+
+function TQuiet.Greet(): integer;
+begin
+  Greet := 7;
+end;
+
+function TQuiet.Both(): integer;
+begin
+  Both := self.Greet() * 1000 + self.Reveal();
+end;
+
+var b: TBase;
+    c: TChild;
+    g: TGrandChild;
+    q: TQuiet;
+    i: IGreeter;
+    x: integer;
+    n: integer;
+
+begin
+  b := TBase.Create();
+  c := TChild.Create();
+  g := TGrandChild.Create();
+  q := TQuiet.Create();
+  writeln(b.Reveal(), c.Reveal(), g.Reveal(), q.Reveal());
+  writeln(c.Secret(), g.Secret());
+  c := g;
+  writeln(c.Secret());
+  b := g;
+  writeln(b.Reveal(), b.Greet());
+  b := q;
+  writeln(b.Greet(), q.Both());
+  i := q;
+  writeln(i.Greet());
+
+  { the same sites, hot enough to be compiled }
+  x := 0;
+  for n := 1 to 50 do
+  begin
+    b := TBase.Create();
+    x := x + b.Reveal();
+    b := TChild.Create();
+    x := x + b.Reveal();
+    b := g;
+    x := x + b.Reveal();
+    b := q;
+    x := x + b.Reveal() + b.Greet();
+  end;
+  writeln(x);
+end.
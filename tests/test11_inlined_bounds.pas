@@ -0,0 +1,35 @@
+program Test11;
+
+type
+  TBox = class
+  public:
+    a: array[1..3] of integer;
+    constructor Create();
+    procedure Put(i: integer; v: integer);
+    function Get(i: integer): integer;
+  end;
+
+constructor TBox.Create();
+begin
+end;
+
+procedure TBox.Put(i: integer; v: integer);
+begin
+  a[i] := v;
+end;
+
+function TBox.Get(i: integer): integer;
+begin
+  Get := a[i];
+end;
+
+var b: TBox;
+
+begin
+  b := TBox.Create();
+  b.Put(2, 5);
+  writeln(b.a[2]);
+  writeln(b.Get(2));
+  b.Put(7, 5);
+  writeln(0);
+end.
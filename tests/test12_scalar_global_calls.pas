@@ -0,0 +1,45 @@
+program Test12;
+
+type
+  TTemp = class
+  public:
+    v: integer;
+    constructor Create(x: integer);
+    destructor Destroy();
+  end;
+
+  TOther = class
+  public:
+    constructor Create();
+    procedure Foo();
+  end;
+
+constructor TTemp.Create(x: integer);
+begin
+  v := x;
+end;
+
+destructor TTemp.Destroy();
+begin
+  writeln(v);
+end;
+
+constructor TOther.Create();
+begin
+end;
+
+procedure TOther.Foo();
+begin
+  g := TTemp.Create(2);
+  g.Destroy();
+end;
+
+var g: TTemp;
+    o: TOther;
+
+begin
+  o := TOther.Create();
+  g := TTemp.Create(1);
+  o.Foo();
+  g.Destroy();
+end.
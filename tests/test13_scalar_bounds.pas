@@ -0,0 +1,43 @@
+program Test13;
+
+type
+  TBuf = class
+  public:
+    d: array of integer;
+    constructor Create(n: integer);
+    procedure Put(i: integer; v: integer);
+    function Get(i: integer): integer;
+    destructor Destroy();
+  end;
+
+constructor TBuf.Create(n: integer);
+begin
+  SetLength(d, n);
+end;
+
+procedure TBuf.Put(i: integer; v: integer);
+begin
+  d[i] := v;
+end;
+
+function TBuf.Get(i: integer): integer;
+begin
+  Get := d[i];
+end;
+
+destructor TBuf.Destroy();
+begin
+  writeln(Sum(d));
+end;
+
+var t: TBuf;
+    x: integer;
+
+begin
+  t := TBuf.Create(2);
+  t.Put(1, 7);
+  x := t.Get(1);
+  writeln(x);
+  t.Put(5, 1);
+  t.Destroy();
+end.
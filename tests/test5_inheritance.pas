@@ -0,0 +1,168 @@
+program Test5;
+
+type
+  IShape = interface
+    function Area(): integer;
+    procedure Grow(d: integer);
+  end;
+
+  INamed = interface
+    function Id(): integer;
+  end;
+
+  TBase = class
+  private:
+    secret: integer;
+  protected:
+    size: integer;
+  public:
+    tag: integer;
+    constructor Create(s: integer);
+    destructor Destroy();
+    function Area(): integer;
+    procedure Grow(d: integer);
+    function Describe(): integer;
+    function Peek(): integer;
+  end;
+
+  TSquare = class(TBase) implements IShape, INamed
+  public:
+    function Area(): integer;
+    function Id(): integer;
+  end;
+
+  TCube = class(TSquare)
+  private:
+    depth: integer;
+  public:
+    constructor Create(s: integer);
+    function Area(): integer;
+    function Id(): integer;
+  end;
+
+  TOther = class implements IShape
+  public:
+    constructor Create();
+    function Area(): integer;
+    procedure Grow(d: integer);
+  end;
+
+constructor TBase.Create(s: integer);
+begin
+  size := s;
+  secret := 100;
+  tag := 1;
+end;
+
+destructor TBase.Destroy();
+begin
+  writeln(size);
+end;
+
+function TBase.Area(): integer;
+begin
+  Area := 0;
+end;
+
+procedure TBase.Grow(d: integer);
+begin
+  size := size + d;
+end;
+
+function TBase.Describe(): integer;
+begin
+  Describe := self.Area() * 1000 + size;
+end;
+
+function TBase.Peek(): integer;
+begin
+  Peek := secret;
+end;
+
+function TSquare.Area(): integer;
+begin
+  Area := size * size;
+end;
+
+function TSquare.Id(): integer;
+begin
+  Id := 2;
+end;
+
+constructor TCube.Create(s: integer);
+begin
+  size := s;
+  depth := s;
+  tag := 3;
+end;
+
+function TCube.Area(): integer;
+begin
+  Area := size * size * depth;
+end;
+
+function TCube.Id(): integer;
+begin
+  Id := 3;
+end;
+
+constructor TOther.Create();
+begin
+end;
+
+function TOther.Area(): integer;
+begin
+  Area := 7;
+end;
+
+procedure TOther.Grow(d: integer);
+begin
+  writeln(d);
+end;
+
+var b: TBase;
+    s: TSquare;
+    c: TCube;
+    sh: IShape;
+    n: INamed;
+    i: integer;
+    x: integer;
+
+begin
+  b := TBase.Create(2);
+  s := TSquare.Create(3);
+  c := TCube.Create(4);
+  writeln(b.Area(), s.Area(), c.Area());
+  writeln(b.Describe(), s.Describe(), c.Describe());
+  writeln(s.tag, c.tag, s.Peek(), c.Peek());
+  b := c;
+  writeln(b.Area());
+  b.Grow(1);
+  writeln(b.Area(), c.Describe());
+  x := 0;
+  for i := 1 to 10 do
+  begin
+    sh := s;
+    x := x + sh.Area();
+    sh := c;
+    x := x + sh.Area();
+    sh := TOther.Create();
+    x := x + sh.Area();
+    n := c;
+    x := x + n.Id();
+    n := s;
+    x := x + n.Id();
+  end;
+  writeln(x);
+  sh := c;
+  sh.Grow(2);
+  writeln(c.Area());
+  sh := TOther.Create();
+  sh.Grow(9);
+  s.Destroy();
+  c.Destroy();
+  s := TSquare.Create(5);
+  x := s.Describe();
+  s.Destroy();
+  writeln(x);
+end.
@@ -0,0 +1,96 @@
+program Test6;
+
+type
+  TBox = class
+  protected:
+    v: integer;
+  public:
+    constructor Create(x: integer);
+    function Get(): integer;
+    procedure Put(x: integer);
+    procedure Show();
+    function Twice(): integer;
+  end;
+
+  TBigBox = class(TBox)
+  public:
+    function Get(): integer;
+  end;
+
+constructor TBox.Create(x: integer);
+begin
+  v := x;
+end;
+
+function TBox.Get(): integer;
+begin
+  Get := v;
+end;
+
+procedure TBox.Put(x: integer);
+begin
+  v := x;
+end;
+
+procedure TBox.Show();
+begin
+  writeln(g);
+end;
+
+function TBox.Twice(): integer;
+begin
+  Twice := v * 2;
+  writeln(999);
+end;
+
+function TBigBox.Get(): integer;
+begin
+  Get := v + 1000;
+end;
+
+var b: TBox;
+    big: TBox;
+    g: integer;
+    x: integer;
+    y: integer;
+
+begin
+  { folding, including wrap-around }
+  x := 2 * 3 + 4 * 5 - 6;
+  writeln(x);
+  y := 7;
+  x := y * 60 * 60;
+  writeln(x);
+  x := 2147483647 + 1 - 3;
+  writeln(x);
+  x := 1 < 2 and 3 > 4 or not 0;
+  writeln(x);
+
+  { dead stores: only the last one survives, but a call in between reads g }
+  x := 1;
+  x := 2;
+  writeln(x);
+  b := TBox.Create(5);
+  g := 10;
+  b.Show();
+  g := 11;
+  g := g;
+  b.Show();
+
+  { statements after FuncName := never run }
+  writeln(b.Twice());
+
+  { trivial methods inline, but only for the receiver's declared class }
+  b.Put(b.Get() + 1);
+  writeln(b.Get());
+  big := TBigBox.Create(7);
+  writeln(big.Get());
+  big.Put(8);
+  writeln(big.Get());
+  b := big;
+  writeln(b.Get());
+
+  { division by a literal zero is not folded: it still fails at run time }
+  x := 1 / 0;
+  writeln(x);
+end.
@@ -0,0 +1,112 @@
+program Test7;
+
+type
+  TAcc = class
+  private:
+    total: integer;
+  public:
+    constructor Create();
+    procedure Add(x: integer);
+    function GetTotal(): integer;
+    function SumTo(n: integer; k: integer): integer;
+    procedure ShowI();
+  end;
+
+constructor TAcc.Create();
+begin
+  total := 0;
+end;
+
+procedure TAcc.Add(x: integer);
+begin
+  total := total + x;
+end;
+
+function TAcc.GetTotal(): integer;
+begin
+  GetTotal := total;
+end;
+
+{ a loop inside a method that is itself called from a loop }
+function TAcc.SumTo(n: integer; k: integer): integer;
+begin
+  total := 0;
+  for k := 1 to n do
+    self.Add(k);
+  SumTo := total;
+end;
+
+procedure TAcc.ShowI();
+begin
+  writeln(i);
+end;
+
+var a: TAcc;
+    i: integer;
+    j: integer;
+    n: integer;
+    s: integer;
+
+begin
+  { call-free nested loops }
+  s := 0;
+  for i := 1 to 10 do
+    for j := i downto 1 do
+      s := s + i * j;
+  writeln(s);
+  writeln(i, j);
+
+  { zero-trip loops leave the counter alone and never run the body }
+  i := 42;
+  for i := 5 to 4 do
+    writeln(0);
+  for i := 4 downto 5 do
+    writeln(0);
+  while i < 0 do
+    writeln(0);
+  writeln(i);
+
+  { the limit is evaluated once }
+  n := 3;
+  s := 0;
+  for i := 1 to n do
+  begin
+    n := n + 1;
+    s := s + 1;
+  end;
+  writeln(s, n);
+
+  { loops whose body calls a method, nested and with a call-free inner loop }
+  a := TAcc.Create();
+  for i := 1 to 4 do
+  begin
+    for j := 1 to i do
+      a.Add(j);
+    s := 0;
+    for j := 1 to 100 do
+      s := s + j;
+    a.Add(s);
+  end;
+  writeln(a.GetTotal());
+  s := 0;
+  for i := 1 to 5 do
+    s := s + a.SumTo(i, 0);
+  writeln(s);
+
+  { the method sees the global counter as the loop sets it }
+  for i := 3 downto 1 do
+    a.ShowI();
+
+  { while with comparisons and and/or/not }
+  i := 0;
+  s := 0;
+  while i < 10 and not (s > 20) do
+  begin
+    i := i + 1;
+    s := s + i;
+  end;
+  writeln(i, s);
+
+  { comparisons yield 1 or 0 }
+  writeln(3 = 3, 3 <> 3, 2 < 3, 3 <= 2, 4 > 4, 4 >= 4);
+end.
@@ -0,0 +1,125 @@
+program Test8;
+
+type
+  TStack = class
+  private:
+    items: array[1..4] of integer;
+    extra: array of integer;
+    top: integer;
+  public:
+    constructor Create();
+    procedure Push(x: integer);
+    procedure Grow(n: integer);
+    function Total(): integer;
+  end;
+
+  TMath = class
+  public:
+    constructor Create();
+    function SumOf(a: array of integer): integer;
+    procedure Double(a: array of integer; i: integer);
+  end;
+
+constructor TStack.Create();
+begin
+  top := 0;
+end;
+
+procedure TStack.Push(x: integer);
+begin
+  top := top + 1;
+  items[top] := x;
+end;
+
+procedure TStack.Grow(n: integer);
+begin
+  SetLength(extra, n);
+  Fill(extra, 7);
+end;
+
+function TStack.Total(): integer;
+begin
+  Total := Sum(items) + Sum(extra);
+end;
+
+constructor TMath.Create();
+begin
+end;
+
+{ a static array passed here keeps its own bounds }
+function TMath.SumOf(a: array of integer): integer;
+begin
+  SumOf := Low(a) * 1000 + Sum(a);
+end;
+
+{ arrays are passed by reference }
+procedure TMath.Double(a: array of integer; i: integer);
+begin
+  for i := Low(a) to High(a) do
+    a[i] := a[i] * 2;
+end;
+
+var s: array[-2..2] of integer;
+    d: array of integer;
+    e: array of integer;
+    st: TStack;
+    m: TMath;
+    i: integer;
+
+begin
+  { static array with negative bounds }
+  for i := Low(s) to High(s) do
+    s[i] := i * i;
+  writeln(Sum(s), Length(s), Low(s), High(s));
+  writeln(s[0 - 2], s[0], s[2]);
+
+  { a dynamic array starts empty; SetLength keeps the common prefix }
+  writeln(Length(d), Low(d), High(d), Sum(d));
+  SetLength(d, 3);
+  d[0] := 5;
+  d[1] := 6;
+  d[2] := 7;
+  SetLength(d, 5);
+  writeln(Sum(d), Length(d), d[4]);
+  SetLength(d, 2);
+  writeln(Sum(d), High(d));
+
+  { assignment shares a dynamic array, Copy does not }
+  e := d;
+  e[0] := 100;
+  writeln(d[0]);
+  e := Copy(d);
+  e[0] := 1;
+  writeln(d[0], e[0]);
+
+  { Copy always starts at index 0 and clamps to what the source holds }
+  e := Copy(s);
+  writeln(Low(e), Length(e), e[0], e[4]);
+  e := Copy(s, 0 - 1, 10);
+  writeln(Length(e), Sum(e));
+  e := Copy(s, 5, 2);
+  writeln(Length(e));
+
+  Fill(s, 3);
+  writeln(Sum(s));
+  m := TMath.Create();
+  m.Double(s, 0);
+  writeln(Sum(s), m.SumOf(s));
+  m.Double(d, 0);
+  writeln(d[0], d[1], m.SumOf(d));
+
+  { array fields, static and dynamic }
+  st := TStack.Create();
+  for i := 1 to 4 do
+    st.Push(i * 10);
+  st.Grow(3);
+  writeln(st.Total());
+
+  { the body replaces d, so the index stays checked and fails on the second pass }
+  for i := Low(d) to High(d) do
+  begin
+    SetLength(d, 1);
+    d[i] := i;
+  end;
+  writeln(0);
+end.
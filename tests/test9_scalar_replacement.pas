@@ -0,0 +1,139 @@
+program Test9;
+
+type
+  TPair = class
+  public:
+    a: integer;
+    b: integer;
+    constructor Create(x: integer; y: integer);
+    destructor Destroy();
+    function Sum(): integer;
+    procedure Scale(k: integer);
+    procedure Bump();
+  end;
+
+  THolder = class
+  public:
+    p: TPair;
+    constructor Create();
+    procedure Take(q: TPair);
+    procedure Kill(q: TPair);
+    function Peek(): integer;
+  end;
+
+constructor TPair.Create(x: integer; y: integer);
+begin
+  a := x;
+  b := y;
+  created := created + 1;
+end;
+
+destructor TPair.Destroy();
+begin
+  writeln(a * 100 + b);
+end;
+
+function TPair.Sum(): integer;
+begin
+  Sum := a + b;
+end;
+
+procedure TPair.Scale(k: integer);
+begin
+  a := a * k;
+  b := b * k;
+end;
+
+{ calls a method on self, so objects of TPair it runs on are never replaced }
+procedure TPair.Bump();
+begin
+  a := a + 1;
+  self.Scale(10);
+end;
+
+constructor THolder.Create();
+begin
+end;
+
+procedure THolder.Take(q: TPair);
+begin
+  p := q;
+end;
+
+procedure THolder.Kill(q: TPair);
+begin
+  q.Destroy();
+end;
+
+function THolder.Peek(): integer;
+begin
+  Peek := p.Sum();
+end;
+
+var w: TPair;
+    t: TPair;
+    u: TPair;
+    kept: TPair;
+    h: THolder;
+    created: integer;
+    i: integer;
+    x: integer;
+
+begin
+  created := 0;
+  h := THolder.Create();
+
+  { never escapes: replaced, fields live in the frame }
+  w := TPair.Create(3, 4);
+  x := w.Sum();
+  w.Scale(2);
+  w.a := w.a + x;
+  x := w.Sum();
+  writeln(x, w.a, w.b);
+  w.Destroy();
+
+  { replaced inside a loop body, one fresh object per iteration }
+  x := 0;
+  for i := 1 to 3 do
+  begin
+    u := TPair.Create(i, i);
+    u.Scale(i);
+    x := x + u.a;
+    u.Destroy();
+  end;
+  writeln(x);
+
+  { stored to a global: the object outlives its Destroy }
+  t := TPair.Create(1, 2);
+  kept := t;
+  t.Scale(3);
+  t.Destroy();
+  writeln(kept.Sum());
+
+  { stored to a field of another object }
+  t := TPair.Create(5, 6);
+  h.p := t;
+  t.Scale(2);
+  t.Destroy();
+  writeln(h.Peek());
+
+  { passed to a call }
+  t := TPair.Create(7, 8);
+  h.Take(t);
+  t.Scale(3);
+  t.Destroy();
+  writeln(h.Peek());
+
+  { destroyed by someone else }
+  t := TPair.Create(2, 9);
+  h.Kill(t);
+  t.Scale(2);
+  t.Destroy();
+
+  { a method that calls another method on self }
+  t := TPair.Create(1, 1);
+  t.Bump();
+  t.Destroy();
+
+  writeln(created);
+end.